@@ -0,0 +1,203 @@
+package maze.core;
+
+import java.util.*;
+
+// D* Lite (Koenig and Likhachev) for an agent walking to a goal through a
+// maze whose walls change on the way.  The search runs backward from the
+// goal, so g[cell] estimates the distance from cell to the goal and
+// rhs[cell] is the one-step lookahead of it.  A wall changed through
+// Maze.setWall() is queued while the agent waits or moves; the next
+// computePath() re-examines only the two cells on either side of each
+// change and spreads the repair from there, keeping every other g and
+// rhs value from before.  Treasures are ignored.
+//
+// The open list is a binary heap of (key, cell) pairs.  A cell's current
+// key is kept in queued[cell], so an entry whose key no longer matches is
+// stale and is skipped when it surfaces, in place of decrease-key.  A key
+// packs its two parts, min(g, rhs) + h + km and min(g, rhs), into one
+// long, so comparing keys compares longs.
+public class DStarLite implements MazeListener {
+    private final static int INFINITY = Integer.MAX_VALUE / 2;
+    private final static long NOT_QUEUED = -1;
+
+    private Maze m;
+    private int start, last, goal, km;
+    private int[] g, rhs;
+    private long[] queued;
+    private long[] heapKeys = new long[64];
+    private int[] heapCells = new int[64];
+    private int heapSize;
+    private int[] open = new int[4];
+    private ArrayDeque<Integer> changed;
+    private int numExpanded;
+
+    // Post: Plans from start to goal in m, following m's wall changes
+    //       until detach() is called
+    public DStarLite(Maze m, MazeCell start, MazeCell goal) {
+        this.m = m;
+        this.start = this.last = m.cellIndex(start);
+        this.goal = m.cellIndex(goal);
+        g = new int[m.numCells()];
+        rhs = new int[m.numCells()];
+        queued = new long[m.numCells()];
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+        Arrays.fill(queued, NOT_QUEUED);
+        changed = new ArrayDeque<Integer>();
+        rhs[this.goal] = 0;
+        push(this.goal, key(this.goal));
+        m.addListener(this);
+    }
+
+    // Post: Stops following m's wall changes
+    public void detach() {m.removeListener(this);}
+
+    @Override
+    public void wallChanged(Maze maze, int cell, Direction d) {
+        synchronized (changed) {
+            changed.add(cell);
+            changed.add(maze.neighbor(cell, d));
+        }
+    }
+
+    public MazeCell getStart() {return m.cellAt(start);}
+
+    // Pre: next is one open step from getStart()
+    // Post: The agent stands on next; planning continues from there
+    public void moveTo(MazeCell next) {
+        start = m.cellIndex(next);
+    }
+
+    // Post: Repairs the plan after the moves and wall changes since the
+    //       last call, and returns true if the goal can still be reached
+    public boolean computePath() {
+        numExpanded = 0;
+        km += manhattan(last, start);
+        last = start;
+        synchronized (changed) {
+            while (!changed.isEmpty()) {
+                updateCell(changed.poll());
+            }
+        }
+        while (heapSize > 0 && (heapKeys[0] < key(start) || rhs[start] != g[start])) {
+            long oldKey = heapKeys[0];
+            int u = pop();
+            if (queued[u] != oldKey) {continue;}
+            queued[u] = NOT_QUEUED;
+            numExpanded++;
+            long newKey = key(u);
+            if (oldKey < newKey) {
+                push(u, newKey);
+            } else if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                updateNeighbors(u);
+            } else {
+                g[u] = INFINITY;
+                updateCell(u);
+                updateNeighbors(u);
+            }
+        }
+        return getDistance() < INFINITY;
+    }
+
+    // Post: Returns the number of cells the last computePath() expanded
+    public int getNumExpanded() {return numExpanded;}
+
+    // Pre: computePath() has been called since the last change
+    // Post: Returns the distance from getStart() to the goal, or
+    //       MazeDistances.UNREACHABLE
+    public int getDistance() {
+        int d = Math.min(g[start], rhs[start]);
+        return d >= INFINITY ? MazeDistances.UNREACHABLE : d;
+    }
+
+    // Pre: computePath() returned true and nothing has changed since
+    // Post: Returns a shortest path from getStart() to the goal
+    public MazePath getPath() {
+        MazePath path = new MazePath(m.xOf(start), m.yOf(start));
+        int cell = start;
+        while (cell != goal) {
+            int n = m.openNeighbors(cell, open);
+            int best = -1;
+            for (int i = 0; i < n; ++i) {
+                if (best < 0 || g[open[i]] < g[best]) {
+                    best = open[i];
+                }
+            }
+            cell = best;
+            path.append(m.cellAt(cell));
+        }
+        return path;
+    }
+
+    private void updateNeighbors(int u) {
+        int n = m.openNeighbors(u, open);
+        int[] neighbors = Arrays.copyOf(open, n);
+        for (int s: neighbors) {
+            updateCell(s);
+        }
+    }
+
+    // Post: rhs[u] is one more than u's best neighbor's g, and u is on
+    //       the open list exactly when it is inconsistent
+    private void updateCell(int u) {
+        if (u != goal) {
+            int best = INFINITY;
+            int n = m.openNeighbors(u, open);
+            for (int i = 0; i < n; ++i) {
+                best = Math.min(best, g[open[i]] + 1);
+            }
+            rhs[u] = Math.min(best, INFINITY);
+        }
+        queued[u] = NOT_QUEUED;
+        if (g[u] != rhs[u]) {
+            push(u, key(u));
+        }
+    }
+
+    private long key(int u) {
+        long k2 = Math.min(g[u], rhs[u]);
+        long k1 = Math.min(k2 + manhattan(start, u) + km, INFINITY);
+        return (k1 << 32) | k2;
+    }
+
+    private int manhattan(int a, int b) {
+        return Math.abs(m.xOf(a) - m.xOf(b)) + Math.abs(m.yOf(a) - m.yOf(b));
+    }
+
+    private void push(int cell, long key) {
+        if (heapSize == heapKeys.length) {
+            heapKeys = Arrays.copyOf(heapKeys, 2 * heapSize);
+            heapCells = Arrays.copyOf(heapCells, 2 * heapSize);
+        }
+        queued[cell] = key;
+        int i = heapSize++;
+        while (i > 0 && heapKeys[(i - 1) / 2] > key) {
+            heapKeys[i] = heapKeys[(i - 1) / 2];
+            heapCells[i] = heapCells[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heapKeys[i] = key;
+        heapCells[i] = cell;
+    }
+
+    // Pre: heapSize > 0
+    // Post: Removes the entry with the smallest key and returns its cell
+    private int pop() {
+        int top = heapCells[0];
+        long key = heapKeys[--heapSize];
+        int cell = heapCells[heapSize];
+        int i = 0;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {child++;}
+            if (heapKeys[child] >= key) {break;}
+            heapKeys[i] = heapKeys[child];
+            heapCells[i] = heapCells[child];
+            i = child;
+        }
+        heapKeys[i] = key;
+        heapCells[i] = cell;
+        return top;
+    }
+}
@@ -2,32 +2,36 @@ package maze.core;
 
 
 public enum Direction {
-	N {
-		@Override
-		public MazeCell successor(MazeCell location) {
-			return new MazeCell(location.X(), location.Y() - 1);
-		}
-	}, 
-	S {
-		@Override
-		public MazeCell successor(MazeCell location) {
-			return new MazeCell(location.X(), location.Y() + 1);
-		}
-	}, 
-	E {
-		@Override
-		public MazeCell successor(MazeCell location) {
-			return new MazeCell(location.X() + 1, location.Y());
-		}
-	}, 
-	W {
-		@Override
-		public MazeCell successor(MazeCell location) {
-			return new MazeCell(location.X() - 1, location.Y());
+	N(0, -1), S(0, 1), E(1, 0), W(-1, 0);
+	
+	// values() copies its array on every call; hot loops use this one
+	static final Direction[] ALL = values();
+	
+	private final int dx, dy;
+	
+	private Direction(int dx, int dy) {
+		this.dx = dx;
+		this.dy = dy;
+	}
+	
+	public int dx() {return dx;}
+	public int dy() {return dy;}
+	
+	// Post: Returns this direction's wall bit: 1, 2, 4 or 8
+	public int bit() {return 1 << ordinal();}
+	
+	public Direction opposite() {
+		switch (this) {
+		case N: return S;
+		case S: return N;
+		case E: return W;
+		default: return E;
 		}
-	};
+	}
 	
-	abstract public MazeCell successor(MazeCell location);
+	public MazeCell successor(MazeCell location) {
+		return new MazeCell(location.X() + dx, location.Y() + dy);
+	}
 	
 	public static Direction between(MazeCell start, MazeCell end) {
 		int xDiff = start.X() - end.X();
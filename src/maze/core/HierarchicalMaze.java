@@ -0,0 +1,334 @@
+package maze.core;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import search.core.BestFirstObject;
+import search.core.BestFirstSearcher;
+
+// An HPA* abstraction of a maze for answering many point-to-point
+// queries.  The grid is cut into square clusters.  Every open wall on a
+// cluster border makes the cells on both sides of it entrances, and each
+// cluster keeps the breadth-first distances, inside the cluster, between
+// its own entrances.  A query links the start and goal to the entrances
+// of their clusters, searches the small graph of entrances, and walks
+// the cells between consecutive waypoints only when the Route is
+// traversed.  Since every border crossing is an entrance, the abstract
+// distance is the true maze distance.
+//
+// of() keeps one abstraction on each Maze and keeps it current through
+// Maze.setWall().  Clusters are built in parallel, and update() rebuilds
+// just the clusters next to a changed wall.
+// Queries may run concurrently with each other but not with update().
+public class HierarchicalMaze {
+    public final static int DEFAULT_CLUSTER_SIZE = 16;
+
+    private Maze m;
+    private int size, xClusters, yClusters;
+    private Cluster[] clusters;
+
+    // The entrances of one cluster, sorted by cell, with dist[i][j] the
+    // distance inside the cluster from entrance i to entrance j, or
+    // MazeDistances.UNREACHABLE
+    private static class Cluster {
+        int[] entrances;
+        int[][] dist;
+    }
+
+    // Pre: size >= 2
+    // Post: Builds the clusters of m, in parallel
+    public HierarchicalMaze(Maze m, int size) {
+        this.m = m;
+        this.size = size;
+        xClusters = (m.getXSize() + size - 1) / size;
+        yClusters = (m.getYSize() + size - 1) / size;
+        clusters = IntStream.range(0, xClusters * yClusters).parallel()
+                .mapToObj(this::buildCluster).toArray(Cluster[]::new);
+    }
+
+    // Post: Returns the shared abstraction of m with the default cluster
+    //       size, building it on first use; it follows every setWall()
+    public static synchronized HierarchicalMaze of(Maze m) {
+        if (m.hierarchy == null) {
+            m.hierarchy = new HierarchicalMaze(m, DEFAULT_CLUSTER_SIZE);
+            m.addListener(HierarchicalMaze::wallChanged);
+        }
+        return m.hierarchy;
+    }
+
+    private static void wallChanged(Maze maze, int cell, Direction d) {
+        maze.hierarchy.update(maze.xOf(cell), maze.yOf(cell));
+    }
+
+    public Maze getMaze() {return m;}
+    public int getClusterSize() {return size;}
+    public int numClusters() {return clusters.length;}
+
+    public int numEntrances() {
+        int total = 0;
+        for (Cluster c: clusters) {
+            total += c.entrances.length;
+        }
+        return total;
+    }
+
+    // Pre: A wall of the cell at (x, y) has changed
+    // Post: Rebuilds the clusters that cell and its neighbors lie in
+    public synchronized void update(int x, int y) {
+        int cell = m.cellIndex(x, y);
+        clusters[clusterOf(cell)] = buildCluster(clusterOf(cell));
+        for (Direction d: Direction.ALL) {
+            int next = m.neighbor(cell, d);
+            if (next >= 0 && clusterOf(next) != clusterOf(cell)) {
+                clusters[clusterOf(next)] = buildCluster(clusterOf(next));
+            }
+        }
+    }
+
+    // Post: Returns the shortest route from start to goal, or null if
+    //       there is none
+    public Route findRoute(MazeCell start, MazeCell goal) {
+        Query q = new Query(m.cellIndex(start), m.cellIndex(goal));
+        BestFirstSearcher<Waypoint> searcher = new BestFirstSearcher<Waypoint>(
+                (w, target) -> Math.abs(m.xOf(w.cell) - m.xOf(target.cell)) + Math.abs(m.yOf(w.cell) - m.yOf(target.cell)));
+        searcher.solve(new Waypoint(q, q.start, 0), new Waypoint(q, q.goal, 0));
+        if (!searcher.success()) {
+            return null;
+        }
+        int[] cells = new int[searcher.numSteps()];
+        int length = 0;
+        for (int i = 0; i < cells.length; ++i) {
+            cells[i] = searcher.get(i).cell;
+            length += searcher.get(i).cost;
+        }
+        return new Route(cells, length);
+    }
+
+    // A shortest route as a list of waypoints.  Consecutive waypoints are
+    // either neighbors across a cluster border or in the same cluster;
+    // the cells between them are found only as iteration reaches them.
+    public class Route implements Iterable<MazeCell> {
+        private int[] waypoints;
+        private int length;
+
+        private Route(int[] waypoints, int length) {
+            this.waypoints = waypoints;
+            this.length = length;
+        }
+
+        // Post: Returns the number of steps from start to goal
+        public int getLength() {return length;}
+
+        public int numWaypoints() {return waypoints.length;}
+
+        // Pre: 0 <= n < numWaypoints()
+        public MazeCell getWaypoint(int n) {return m.cellAt(waypoints[n]);}
+
+        // Post: Iterates over every cell from start to goal
+        @Override
+        public Iterator<MazeCell> iterator() {
+            return new Iterator<MazeCell>() {
+                private int next = 0, segment = 0;
+                private int[] cells = {waypoints[0]};
+
+                @Override
+                public boolean hasNext() {
+                    return next < cells.length || segment + 1 < waypoints.length;
+                }
+
+                @Override
+                public MazeCell next() {
+                    if (next == cells.length) {
+                        if (segment + 1 >= waypoints.length) {
+                            throw new NoSuchElementException();
+                        }
+                        cells = refine(waypoints[segment], waypoints[segment + 1]);
+                        segment++;
+                        next = 0;
+                    }
+                    return m.cellAt(cells[next++]);
+                }
+            };
+        }
+
+        // Post: Returns the whole route, refining every segment
+        public MazePath toMazePath() {
+            MazePath path = null;
+            for (MazeCell c: this) {
+                if (path == null) {
+                    path = new MazePath(c.X(), c.Y());
+                } else {
+                    path.append(c);
+                }
+            }
+            return path;
+        }
+    }
+
+    // Pre: from and to are neighbors or in the same cluster, and to can
+    //       be reached from from inside that cluster
+    // Post: Returns the cells after from up to and including to
+    private int[] refine(int from, int to) {
+        if (clusterOf(from) != clusterOf(to)) {
+            return new int[] {to};
+        }
+        int c = clusterOf(from);
+        int[] parent = new int[size * size];
+        bfs(c, from, parent);
+        int n = 0;
+        for (int cell = to; cell != from; cell = parent[local(c, cell)]) {n++;}
+        int[] result = new int[n];
+        for (int cell = to; cell != from; cell = parent[local(c, cell)]) {
+            result[--n] = cell;
+        }
+        return result;
+    }
+
+    // The start and goal of one query, with their distances to the
+    // entrances of their clusters
+    private class Query {
+        int start, goal, startCluster, goalCluster;
+        int[] fromStart, toGoal;
+
+        Query(int start, int goal) {
+            this.start = start;
+            this.goal = goal;
+            startCluster = clusterOf(start);
+            goalCluster = clusterOf(goal);
+            fromStart = bfs(startCluster, start, null);
+            toGoal = bfs(goalCluster, goal, null);
+        }
+
+        // Post: Adds to result every waypoint one abstract move from cell
+        void successors(int cell, ArrayList<Waypoint> result) {
+            int c = clusterOf(cell);
+            Cluster cluster = clusters[c];
+            if (cell == start) {
+                for (int e: cluster.entrances) {
+                    int d = fromStart[local(c, e)];
+                    if (d > 0) {result.add(new Waypoint(this, e, d));}
+                }
+            }
+            int i = Arrays.binarySearch(cluster.entrances, cell);
+            if (i >= 0) {
+                for (int j = 0; j < cluster.entrances.length; ++j) {
+                    if (cluster.dist[i][j] > 0) {
+                        result.add(new Waypoint(this, cluster.entrances[j], cluster.dist[i][j]));
+                    }
+                }
+                for (Direction d: Direction.ALL) {
+                    int next = m.neighbor(cell, d);
+                    if (next >= 0 && clusterOf(next) != c && !m.blocked(cell, d)) {
+                        result.add(new Waypoint(this, next, 1));
+                    }
+                }
+            }
+            if (c == goalCluster && cell != goal) {
+                int d = toGoal[local(c, cell)];
+                if (d > 0) {result.add(new Waypoint(this, goal, d));}
+            }
+        }
+    }
+
+    // A cell of the abstract graph during one query, with the cost of the
+    // move that reached it; equality depends on the cell alone
+    private static class Waypoint implements BestFirstObject<Waypoint> {
+        Query q;
+        int cell, cost;
+
+        Waypoint(Query q, int cell, int cost) {
+            this.q = q;
+            this.cell = cell;
+            this.cost = cost;
+        }
+
+        @Override
+        public ArrayList<Waypoint> getSuccessors() {
+            ArrayList<Waypoint> result = new ArrayList<Waypoint>();
+            q.successors(cell, result);
+            return result;
+        }
+
+        @Override
+        public int getCost(Waypoint successor) {return successor.cost;}
+
+        @Override
+        public boolean achieves(Waypoint goal) {return cell == goal.cell;}
+
+        @Override
+        public int hashCode() {return cell;}
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Waypoint && ((Waypoint)other).cell == cell;
+        }
+    }
+
+    private int clusterOf(int cell) {
+        return (m.yOf(cell) / size) * xClusters + m.xOf(cell) / size;
+    }
+
+    // Pre: cell lies in cluster c
+    // Post: Returns the position of cell within c's bounding box
+    private int local(int c, int cell) {
+        return (m.yOf(cell) - c / xClusters * size) * size + m.xOf(cell) - c % xClusters * size;
+    }
+
+    private Cluster buildCluster(int c) {
+        int x0 = c % xClusters * size, y0 = c / xClusters * size;
+        int x1 = Math.min(x0 + size, m.getXSize()), y1 = Math.min(y0 + size, m.getYSize());
+        int[] found = new int[4 * size];
+        int n = 0;
+        for (int y = y0; y < y1; ++y) {
+            for (int x = x0; x < x1; ++x) {
+                if (x == x0 || y == y0 || x == x1 - 1 || y == y1 - 1) {
+                    int cell = m.cellIndex(x, y);
+                    for (Direction d: Direction.ALL) {
+                        int next = m.neighbor(cell, d);
+                        if (next >= 0 && clusterOf(next) != c && !m.blocked(cell, d)) {
+                            found[n++] = cell;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        Cluster result = new Cluster();
+        result.entrances = Arrays.copyOf(found, n);
+        result.dist = new int[n][n];
+        for (int i = 0; i < n; ++i) {
+            int[] dist = bfs(c, result.entrances[i], null);
+            for (int j = 0; j < n; ++j) {
+                result.dist[i][j] = dist[local(c, result.entrances[j])];
+            }
+        }
+        return result;
+    }
+
+    // Pre: source lies in cluster c; parent is null or has size * size
+    //      elements
+    // Post: Returns the distances from source to the cells of c, moving
+    //       only inside c, indexed by local(); records in parent the cell
+    //       each reached cell was first reached from
+    private int[] bfs(int c, int source, int[] parent) {
+        int[] dist = new int[size * size];
+        Arrays.fill(dist, MazeDistances.UNREACHABLE);
+        int[] queue = new int[size * size];
+        int[] open = new int[4];
+        int head = 0, tail = 0;
+        dist[local(c, source)] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            int n = m.openNeighbors(cell, open);
+            for (int i = 0; i < n; ++i) {
+                if (clusterOf(open[i]) == c && dist[local(c, open[i])] == MazeDistances.UNREACHABLE) {
+                    dist[local(c, open[i])] = dist[local(c, cell)] + 1;
+                    if (parent != null) {parent[local(c, open[i])] = cell;}
+                    queue[tail++] = open[i];
+                }
+            }
+        }
+        return dist;
+    }
+}
@@ -0,0 +1,170 @@
+package maze.core;
+
+import java.util.*;
+
+// A maze contracted to the cells where a route can make a choice.  Dead
+// ends that hold no treasure, start or end are pruned away, repeatedly,
+// since no shortest route enters them.  The cells left are nodes if they
+// are junctions (anything but two open sides) or the start, end or a
+// treasure; every other cell lies on a corridor between two nodes, which
+// becomes one edge weighted by its length.  Edges are stored by the node
+// they leave and the direction they leave it in.  A MazeExplorer made
+// with this graph moves from node to node, and MazePath walks the
+// corridors back out into single steps.
+public class JunctionGraph {
+    private Maze m;
+    private int[] nodeOf, nodeCell;
+    private int[] edgeTo, edgeCost;
+    private BitSet pruned;
+    private int numEdges;
+
+    // Post: Builds the graph of m as its walls stand now
+    public JunctionGraph(Maze m) {
+        this.m = m;
+        int cells = m.numCells();
+        byte[] degree = new byte[cells];
+        int[] open = new int[4];
+        pruned = new BitSet(cells);
+
+        int[] stack = new int[cells];
+        int top = 0;
+        for (int cell = 0; cell < cells; ++cell) {
+            degree[cell] = (byte)m.openNeighbors(cell, open);
+            if (degree[cell] <= 1 && !isSpecial(cell)) {
+                stack[top++] = cell;
+                pruned.set(cell);
+            }
+        }
+        while (top > 0) {
+            int cell = stack[--top];
+            int n = m.openNeighbors(cell, open);
+            for (int i = 0; i < n; ++i) {
+                int next = open[i];
+                if (!pruned.get(next) && --degree[next] <= 1 && !isSpecial(next)) {
+                    stack[top++] = next;
+                    pruned.set(next);
+                }
+            }
+        }
+
+        nodeOf = new int[cells];
+        Arrays.fill(nodeOf, -1);
+        int numNodes = 0;
+        for (int cell = 0; cell < cells; ++cell) {
+            if (!pruned.get(cell) && (degree[cell] != 2 || isSpecial(cell))) {
+                stack[numNodes] = cell;
+                nodeOf[cell] = numNodes++;
+            }
+        }
+        nodeCell = Arrays.copyOf(stack, numNodes);
+
+        edgeTo = new int[numNodes * 4];
+        edgeCost = new int[numNodes * 4];
+        Arrays.fill(edgeTo, -1);
+        for (int node = 0; node < numNodes; ++node) {
+            for (Direction d: Direction.ALL) {
+                int first = openStep(nodeCell[node], d);
+                if (first < 0) {continue;}
+                int prev = nodeCell[node], cur = first, cost = 1;
+                while (nodeOf[cur] < 0) {
+                    int next = corridorStep(prev, cur);
+                    prev = cur;
+                    cur = next;
+                    cost++;
+                }
+                if (nodeOf[cur] != node) {
+                    edgeTo[node * 4 + d.ordinal()] = nodeOf[cur];
+                    edgeCost[node * 4 + d.ordinal()] = cost;
+                    numEdges++;
+                }
+            }
+        }
+    }
+
+    public Maze getMaze() {return m;}
+
+    public int numNodes() {return nodeCell.length;}
+
+    // Post: Returns the number of edges, each counted from both ends
+    public int numEdges() {return numEdges;}
+
+    // Post: Returns the number of cells pruned as useless dead ends
+    public int numPruned() {return pruned.cardinality();}
+
+    // Pre: 0 <= cell < getMaze().numCells()
+    public boolean isNode(int cell) {return nodeOf[cell] >= 0;}
+
+    // Pre: isNode(cell)
+    // Post: Stores the cells of the nodes one edge from cell in out, and
+    //       returns how many there are; out.length >= 4
+    public int adjacent(int cell, int[] out) {
+        int base = nodeOf[cell] * 4;
+        int n = 0;
+        for (int i = base; i < base + 4; ++i) {
+            if (edgeTo[i] >= 0) {
+                out[n++] = nodeCell[edgeTo[i]];
+            }
+        }
+        return n;
+    }
+
+    // Pre: isNode(from); isNode(to)
+    // Post: Returns the length of the shortest edge from from to to, or
+    //       -1 if there is none
+    public int cost(int from, int to) {
+        int base = nodeOf[from] * 4;
+        int best = -1;
+        for (int i = base; i < base + 4; ++i) {
+            if (edgeTo[i] == nodeOf[to] && (best < 0 || edgeCost[i] < best)) {
+                best = edgeCost[i];
+            }
+        }
+        return best;
+    }
+
+    // Pre: path ends at cell from; cost(from, to) > 0
+    // Post: Appends the cells of the shortest edge from from to to, the
+    //       last of which is to
+    public void appendCorridor(MazePath path, int from, int to) {
+        int base = nodeOf[from] * 4;
+        Direction best = null;
+        for (Direction d: Direction.ALL) {
+            int i = base + d.ordinal();
+            if (edgeTo[i] == nodeOf[to] && (best == null || edgeCost[i] < edgeCost[base + best.ordinal()])) {
+                best = d;
+            }
+        }
+        int prev = from, cur = openStep(from, best);
+        path.append(m.cellAt(cur));
+        while (cur != to) {
+            int next = corridorStep(prev, cur);
+            prev = cur;
+            cur = next;
+            path.append(m.cellAt(cur));
+        }
+    }
+
+    private boolean isSpecial(int cell) {
+        return m.treasureNumber(cell) >= 0 || m.isStart(m.cellAt(cell)) || m.isEnd(m.cellAt(cell));
+    }
+
+    // Post: Returns the unpruned cell one open step from cell in
+    //       direction d, or -1 if there is none
+    private int openStep(int cell, Direction d) {
+        if (m.blocked(cell, d)) {return -1;}
+        int next = m.neighbor(cell, d);
+        return (next < 0 || pruned.get(next)) ? -1 : next;
+    }
+
+    // Pre: cur is a corridor cell entered from prev
+    // Post: Returns the corridor cell or node after cur
+    private int corridorStep(int prev, int cur) {
+        for (Direction d: Direction.ALL) {
+            int next = openStep(cur, d);
+            if (next >= 0 && next != prev) {
+                return next;
+            }
+        }
+        throw new IllegalStateException("corridor ends at " + m.cellAt(cur));
+    }
+}
@@ -1,34 +1,76 @@
 package maze.core;
 
+import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
+// Each cell's walls are the four Direction bits of one nibble of walls.
+// Rows are padded to a whole number of bytes, so the cell at (x, y) lives
+// in byte y * rowBytes + x / 2, and two cells in different rows never
+// share a byte.  Cells are also numbered by an int index, y * xSize + x,
+// which the allocation-free methods below use in place of MazeCell.
+// getCell() hands out one shared MazeCell per coordinate; a row of them is
+// created the first time any cell in that row is asked for.  The wall
+// bytes are normally on the heap, but MazeFile can map them straight from
+// a file.  setWall() is the one public way to change a wall once a maze
+// is made, and it tells every MazeListener about the change.
 public class Maze {
     
-    private int xSize, ySize;
+    private int xSize, ySize, rowBytes;
     private MazeCell start, end;
     
-    private EnumSet<Direction>[][] barriers;
-    private MazeCell[][] cells;
+    private ByteBuffer walls;
+    private MazeCell[][] cellRows;
     private Set<MazeCell> treasures;
+    private int[] treasureCells;
+    private List<MazeListener> listeners;
+    private volatile int numWallChanges;
+    private volatile boolean checkReachability;
     
-    // Pre: xSize > 0; ySize > 0
+    // Tables that the of() methods of other classes share for this maze,
+    // each made on first use and kept here so that it goes with the maze
+    MazeDistances distances;
+    HierarchicalMaze hierarchy;
+    MazeLandmarks landmarks;
+    MazeComponents components;
+    
+    // Pre: xSize > 0; ySize > 0; xSize * ySize <= Integer.MAX_VALUE
     // Post: Generates a maze in which every cell is barricaded from every
     //       other cell
-    @SuppressWarnings("unchecked")
     public Maze(int xSize, int ySize) {
+        this(xSize, ySize, null);
+        byte[] bytes = new byte[wallBytes(xSize, ySize)];
+        Arrays.fill(bytes, (byte)0xFF);
+        walls = ByteBuffer.wrap(bytes);
+    }
+    
+    // Pre: walls, if not null, holds wallBytes(xSize, ySize) bytes from
+    //      position 0 in the layout described above
+    // Post: A maze with those walls and no start, end or treasures
+    Maze(int xSize, int ySize, ByteBuffer walls) {
+        if (xSize <= 0 || ySize <= 0 || (long)xSize * ySize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot make a maze of " + xSize + " by " + ySize + " cells");
+        }
         this.xSize = xSize;
         this.ySize = ySize;
         start = end = null;
-        cells = new MazeCell[xSize][ySize];
-        barriers = new EnumSet[xSize][ySize];
-        for (int x = 0; x < xSize; ++x) {
-            for (int y = 0; y < ySize; ++y) {
-                cells[x][y] = new MazeCell(x, y);
-                barriers[x][y] = EnumSet.allOf(Direction.class);
-            }
-        }
+        rowBytes = (xSize + 1) / 2;
+        this.walls = walls;
+        cellRows = new MazeCell[ySize][];
         
         treasures = new LinkedHashSet<MazeCell>();
+        treasureCells = new int[0];
+        listeners = new java.util.concurrent.CopyOnWriteArrayList<MazeListener>();
+    }
+    
+    // Post: Returns how many bytes hold the walls of an xSize by ySize maze
+    static int wallBytes(int xSize, int ySize) {return (xSize + 1) / 2 * ySize;}
+    
+    // Post: Returns a read-only view of the wall bytes, from position 0
+    ByteBuffer getWallBytes() {
+        ByteBuffer view = walls.asReadOnlyBuffer();
+        view.clear();
+        return view;
     }
     
     // Pre: 0 <= perfection <= 1.0
@@ -36,56 +78,72 @@ public class Maze {
     //       and ending at end; if perfection = 1, the maze is perfect; if
     //       perfection = 0, the maze has very few walls
     public void makeMaze(MazeCell start, MazeCell end, int numTreasures, double perfection) {
+        makeMaze(start, end, numTreasures, perfection, new Random().nextLong());
+    }
+    
+    // Pre: 0 <= perfection <= 1.0
+    // Post: As above, but the same seed always yields the same maze
+    public void makeMaze(MazeCell start, MazeCell end, int numTreasures, double perfection, long seed) {
+        new MazeGenerator(seed).carve(this, start, end, numTreasures, perfection);
+    }
+    
+    // Post: Returns true if searches should ask MazeComponents whether
+    //       their goals can be reached at all.  That is so once setWall()
+    //       raises a wall, which may cut the maze in two, and for any maze
+    //       handed to setReachabilityCheck(true), such as a parsed or
+    //       mapped one that is not known to be connected.  Building the
+    //       index touches every wall, so it is not done otherwise.
+    public boolean checksReachability() {return checkReachability;}
+    
+    public void setReachabilityCheck(boolean check) {checkReachability = check;}
+    
+    void setEnds(MazeCell start, MazeCell end) {
         this.start = start;
         this.end = end;
-        
-        ArrayList<MazeCell> openList = new ArrayList<MazeCell>();
-        Map<MazeCell,MazeCell> predecessors = new HashMap<MazeCell,MazeCell>();
-        Set<MazeCell> visited = new LinkedHashSet<MazeCell>();
-        openList.add(end);
-        while (openList.size() > 0) {
-            MazeCell current = openList.remove(openList.size() - 1);
-            if (!visited.contains(current)) {
-                visited.add(current);
-                if (predecessors.containsKey(current)) {
-                    knockDownBetween(current, predecessors.get(current));
-                }
-                ArrayList<MazeCell> neighbors = getNeighbors(current);
-                Collections.shuffle(neighbors);
-                for (MazeCell neighbor: neighbors) {
-                    openList.add(neighbor);
-                    predecessors.put(neighbor, current);
-                }
-            } else if (Math.random() > perfection) {
-                if (predecessors.keySet().contains(current)) {
-                    knockDownBetween(current, predecessors.get(current));
-                }
-            }
+    }
+    
+    // Post: Chooses numTreasures cells other than the start and end, each
+    //       set of them equally likely, in time proportional to
+    //       numTreasures (Floyd's sampling algorithm)
+    void placeTreasures(int numTreasures, SplittableRandom random) {
+        TreeSet<Integer> excluded = new TreeSet<Integer>();
+        for (MazeCell c: new MazeCell[]{start, end}) {
+            if (c != null) {excluded.add(cellIndex(c));}
         }
-        
-        if (visited.size() != xSize * ySize) {
-        	throw new IllegalStateException("Some cells weren't visited");
+        int numCandidates = numCells() - excluded.size();
+        numTreasures = Math.min(numTreasures, numCandidates);
+        TreeSet<Integer> chosen = new TreeSet<Integer>();
+        for (int j = numCandidates - numTreasures; j < numCandidates; ++j) {
+            int t = random.nextInt(j + 1);
+            chosen.add(chosen.contains(t) ? j : t);
         }
         
-        addTreasure(numTreasures);
-    }
-
-    private void addTreasure(int numTreasures) {
         treasures = new LinkedHashSet<MazeCell>();
-        int numUntried = xSize * ySize - 2;
-        for (int i = 0; i < xSize; ++i) {
-            for (int j = 0; j < ySize; ++j) {
-                MazeCell candidate = new MazeCell(i, j);
-                if (!candidate.equals(getStart()) && !candidate.equals(getEnd())) {
-                    double prob = (double)numTreasures / (double)numUntried;
-                    if (Math.random() < prob) {
-                        treasures.add(candidate);
-                        numTreasures--;
-                    }
-                    numUntried--;
-                }
+        for (int candidate: chosen) {
+            for (int skip: excluded) {
+                if (candidate >= skip) {candidate++;}
             }
+            treasures.add(cellAt(candidate));
+        }
+        indexTreasures();
+    }
+    
+    void setTreasures(Collection<MazeCell> cells) {
+        treasures = new LinkedHashSet<MazeCell>();
+        for (MazeCell c: cells) {
+            treasures.add(getCell(c.X(), c.Y()));
         }
+        indexTreasures();
+    }
+    
+    // Post: treasureCells holds the index of every treasure, in order
+    private void indexTreasures() {
+        treasureCells = new int[treasures.size()];
+        int i = 0;
+        for (MazeCell t: treasures) {
+            treasureCells[i++] = cellIndex(t);
+        }
+        Arrays.sort(treasureCells);
     }
     
     public MazeCell getStart() {return start;}
@@ -97,10 +155,23 @@ public class Maze {
     public boolean isStart(MazeCell mc) {return start.equals(mc);}
     public boolean isEnd(MazeCell mc) {return end.equals(mc);}
     public boolean isTreasure(MazeCell mc) {return treasures.contains(mc);}
-    public boolean isTreasure(int x, int y) {return isTreasure(new MazeCell(x, y));}
+    public boolean isTreasure(int x, int y) {return within(x, y) && treasureNumber(cellIndex(x, y)) >= 0;}
     
     public Set<MazeCell> getTreasures() {return Collections.unmodifiableSet(treasures);}
     
+    public int numTreasures() {return treasureCells.length;}
+    
+    // Post: Returns the number of the treasure at cell, counting treasures
+    //       in cell index order from 0, or -1 if there is none
+    public int treasureNumber(int cell) {
+        int i = Arrays.binarySearch(treasureCells, cell);
+        return i < 0 ? -1 : i;
+    }
+    
+    // Pre: 0 <= n < numTreasures()
+    // Post: Returns the cell index of treasure number n
+    public int treasureCell(int n) {return treasureCells[n];}
+    
     public int getXMin() {return 0;}
     public int getYMin() {return 0;}
     public int getXMax() {return xSize - 1;}
@@ -116,7 +187,7 @@ public class Maze {
             throw new IllegalArgumentException(c + " is not a neighbor to " + n);
         }
         
-        return barriers[c.X()][c.Y()].contains(Direction.between(c, n));
+        return blocked(c.X(), c.Y(), Direction.between(c, n));
     }
     
     public boolean blocked(MazeCell c, Direction d) {
@@ -124,9 +195,103 @@ public class Maze {
     }
     
     public boolean blocked(int x, int y, Direction d) {
-    	return barriers[x][y].contains(d);
+    	return (wallBits(x, y) & d.bit()) != 0;
+    }
+    
+    // Pre: 0 <= cell < numCells()
+    public boolean blocked(int cell, Direction d) {
+    	int y = cell / xSize;
+    	return blocked(cell - y * xSize, y, d);
+    }
+    
+    // Pre: within(x, y)
+    // Post: Returns the walls around (x, y) as the sum of their Direction
+    //       bits
+    public int wallBits(int x, int y) {
+    	return (walls.get(y * rowBytes + (x >> 1)) >> ((x & 1) << 2)) & 0xF;
+    }
+    
+    public int numCells() {return xSize * ySize;}
+    
+    public int cellIndex(int x, int y) {return y * xSize + x;}
+    
+    public int cellIndex(MazeCell c) {return cellIndex(c.X(), c.Y());}
+    
+    public int xOf(int cell) {return cell % xSize;}
+    
+    public int yOf(int cell) {return cell / xSize;}
+    
+    public MazeCell cellAt(int cell) {
+    	int y = cell / xSize;
+    	return getCell(cell - y * xSize, y);
+    }
+    
+    // Pre: within(x, y)
+    // Post: Returns the one shared MazeCell for (x, y)
+    public MazeCell getCell(int x, int y) {
+    	MazeCell[] row = cellRows[y];
+    	MazeCell c;
+    	if (row == null || (c = row[x]) == null) {
+    		c = makeRow(y)[x];
+    	}
+    	return c;
+    }
+    
+    // Post: Returns the shared cells of row y, creating them if no thread
+    //       has yet; synchronized so a row is built once and then seen
+    //       complete by every thread that comes through here
+    private synchronized MazeCell[] makeRow(int y) {
+    	if (cellRows[y] == null) {
+    		MazeCell[] row = new MazeCell[xSize];
+    		for (int x = 0; x < xSize; ++x) {
+    			row[x] = new MazeCell(x, y);
+    		}
+    		cellRows[y] = row;
+    	}
+    	return cellRows[y];
+    }
+    
+    // Post: Returns the cell one step from c in direction d; it is the
+    //       shared instance if it lies within this maze
+    public MazeCell successor(MazeCell c, Direction d) {
+    	int x = c.X() + d.dx(), y = c.Y() + d.dy();
+    	return within(x, y) ? getCell(x, y) : new MazeCell(x, y);
     }
     
+    public boolean within(int x, int y) {
+    	return x >= 0 && x < xSize && y >= 0 && y < ySize;
+    }
+    
+    // Pre: 0 <= cell < numCells()
+    // Post: Returns the index of the cell one step from cell in direction
+    //       d, or -1 if that step leaves the maze; walls are disregarded
+    public int neighbor(int cell, Direction d) {
+    	int y = cell / xSize;
+    	int x = cell - y * xSize;
+    	return within(x + d.dx(), y + d.dy()) ? cell + d.dx() + d.dy() * xSize : -1;
+    }
+    
+    // Pre: 0 <= cell < numCells(); out.length >= 4
+    // Post: Stores the indices of the cells one unblocked step from cell
+    //       in out, in Direction order, and returns how many there are
+    public int openNeighbors(int cell, int[] out) {
+    	int y = cell / xSize;
+    	int x = cell - y * xSize;
+    	int bits = wallBits(x, y);
+    	int n = 0;
+    	for (Direction d: Direction.ALL) {
+    		if ((bits & d.bit()) == 0 && within(x + d.dx(), y + d.dy())) {
+    			out[n++] = cell + d.dx() + d.dy() * xSize;
+    		}
+    	}
+    	return n;
+    }
+    
+    // Post: Draws the maze in text: '#' is a wall, and each cell is a
+    //       space or S, E or T for the start, end or a treasure.  Row y
+    //       takes two lines, its north walls and then its west walls and
+    //       cells, and a last line holds the south walls.  parse() reads
+    //       this format back.
     public String toString() {
     	StringBuilder result = new StringBuilder();
     	for (int row = 0; row < ySize; ++row) {
@@ -138,7 +303,7 @@ public class Maze {
     		
     		for (int col = 0; col < xSize; ++col) {
     			appendSpot(result, blocked(col, row, Direction.W));
-    			result.append(' ');
+    			result.append(markAt(col, row));
     		}
     		appendSpot(result, blocked(xSize - 1, row, Direction.E));
     		result.append('\n');
@@ -152,19 +317,111 @@ public class Maze {
     	return result.toString();
     }
     
+    final static char START_MARK = 'S', END_MARK = 'E', TREASURE_MARK = 'T';
+    
+    private char markAt(int x, int y) {
+    	MazeCell c = getCell(x, y);
+    	if (c.equals(start)) {
+    		return START_MARK;
+    	} else if (c.equals(end)) {
+    		return END_MARK;
+    	} else {
+    		return isTreasure(x, y) ? TREASURE_MARK : ' ';
+    	}
+    }
+    
+    // Pre: text holds a maze in the format of toString(), whether from
+    //       toString() or from MazeGenerator.writeEller()
+    // Post: Returns that maze
+    public static Maze parse(Reader text) throws IOException {
+    	BufferedReader in = new BufferedReader(text);
+    	ArrayList<String> rows = new ArrayList<String>();
+    	for (String line = in.readLine(); line != null; line = in.readLine()) {
+    		if (line.length() > 0) {
+    			rows.add(line);
+    		}
+    	}
+    	if (rows.size() < 3 || rows.size() % 2 == 0 || rows.get(0).length() % 2 == 0) {
+    		throw new IOException("Not a maze: " + rows.size() + " lines");
+    	}
+    	
+    	Maze m = new Maze(rows.get(0).length() / 2, rows.size() / 2);
+    	MazeCell start = null, end = null;
+    	ArrayList<MazeCell> treasures = new ArrayList<MazeCell>();
+    	for (int y = 0; y < m.ySize; ++y) {
+    		String walls = rows.get(2 * y), cells = rows.get(2 * y + 1);
+    		if (walls.length() != 2 * m.xSize + 1 || cells.length() != 2 * m.xSize + 1) {
+    			throw new IOException("Row " + y + " is not " + m.xSize + " cells wide");
+    		}
+    		for (int x = 0; x < m.xSize; ++x) {
+    			if (y > 0 && walls.charAt(2 * x + 1) == ' ') {
+    				m.knockDownBetween(x, y, Direction.N);
+    			}
+    			if (x > 0 && cells.charAt(2 * x) == ' ') {
+    				m.knockDownBetween(x, y, Direction.W);
+    			}
+    			switch (cells.charAt(2 * x + 1)) {
+    			case START_MARK: start = m.getCell(x, y); break;
+    			case END_MARK: end = m.getCell(x, y); break;
+    			case TREASURE_MARK: treasures.add(m.getCell(x, y)); break;
+    			}
+    		}
+    	}
+    	m.setEnds(start, end);
+    	m.setTreasures(treasures);
+    	return m;
+    }
+    
     private void appendSpot(StringBuilder result, boolean wall) {
     	result.append(wall ? '#' : ' ');
     }
     
-    // Pre: first and second are Manhattan neighbors
-    // Post: Knocks down a wall between them, if it exists
-    private void knockDownBetween(MazeCell first, MazeCell second) {
-    	barriers[first.X()][first.Y()].remove(Direction.between(first, second));
-    	barriers[second.X()][second.Y()].remove(Direction.between(second, first));
-    	
-    	if (blocked(first, second) || blocked(second, first)) {
-    		throw new IllegalStateException("knock down did not work");
+    public void addListener(MazeListener listener) {listeners.add(listener);}
+    
+    public void removeListener(MazeListener listener) {listeners.remove(listener);}
+    
+    // Post: Returns how many times setWall() has changed a wall, so that
+    //       a table built from the walls can tell it is out of date
+    public int getNumWallChanges() {return numWallChanges;}
+    
+    // Pre: within(x, y) and within(x + d.dx(), y + d.dy())
+    // Post: Raises or removes the wall between (x, y) and its neighbor in
+    //       direction d, on both sides, and notifies every listener if
+    //       that changed anything
+    public void setWall(int x, int y, Direction d, boolean wall) {
+    	int cell = cellIndex(x, y);
+    	if (blocked(cell, d) == wall && blocked(neighbor(cell, d), d.opposite()) == wall) {
+    		return;
     	}
+    	putWall(x, y, d, wall);
+    	putWall(x + d.dx(), y + d.dy(), d.opposite(), wall);
+    	numWallChanges++;
+    	if (wall) {checkReachability = true;}
+    	for (MazeListener listener: listeners) {
+    		listener.wallChanged(this, cell, d);
+    	}
+    }
+    
+    private void putWall(int x, int y, Direction d, boolean wall) {
+    	int i = y * rowBytes + (x >> 1);
+    	int bit = d.bit() << ((x & 1) << 2);
+    	walls.put(i, (byte)(wall ? walls.get(i) | bit : walls.get(i) & ~bit));
+    }
+    
+    // Pre: within(x, y) and within(x + d.dx(), y + d.dy())
+    // Post: Removes the wall between (x, y) and its neighbor in direction
+    //       d from both sides
+    void knockDownBetween(int x, int y, Direction d) {
+    	knockDown(x, y, d);
+    	knockDown(x + d.dx(), y + d.dy(), d.opposite());
+    }
+    
+    // Pre: within(x, y)
+    // Post: Removes the wall on side d of (x, y), but not the matching
+    //       wall of its neighbor
+    void knockDown(int x, int y, Direction d) {
+    	int i = y * rowBytes + (x >> 1);
+    	walls.put(i, (byte)(walls.get(i) & ~(d.bit() << ((x & 1) << 2))));
     }
     
     // Pre: none
@@ -172,10 +429,10 @@ public class Maze {
     //       ordering, disregarding walls completely.
     public ArrayList<MazeCell> getNeighbors(MazeCell current) {
         ArrayList<MazeCell> neighbors = new ArrayList<MazeCell>(4);
-        for (Direction d: Direction.values()) {
-        	MazeCell neighbor = d.successor(current);
-        	if (within(neighbor)) {
-        		neighbors.add(neighbor);
+        for (Direction d: Direction.ALL) {
+        	int x = current.X() + d.dx(), y = current.Y() + d.dy();
+        	if (within(x, y)) {
+        		neighbors.add(getCell(x, y));
         	}
         }
         return neighbors;
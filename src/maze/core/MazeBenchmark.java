@@ -0,0 +1,54 @@
+package maze.core;
+
+import maze.heuristics.Manhattan;
+import search.core.BestFirstSearcher;
+
+// Times BestFirstSearcher on large random mazes.
+public class MazeBenchmark {
+    private final static int WARMUP = 2;
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: MazeBenchmark size trials perfection");
+            System.exit(1);
+        }
+        int size = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+        double perfection = Double.parseDouble(args[2]);
+
+        long heapTime = 0, bucketTime = 0;
+        long heapNodes = 0, bucketNodes = 0;
+        for (int i = 0; i < WARMUP + trials; ++i) {
+            Maze m = new Maze(size, size);
+            m.makeMaze(new MazeCell(0, 0), new MazeCell(size - 1, size - 1), 0, perfection);
+            BestFirstSearcher<MazeExplorer> heap = new BestFirstSearcher<>(new Manhattan());
+            heap.setBucketsAllowed(false);
+            BestFirstSearcher<MazeExplorer> buckets = new BestFirstSearcher<>(new Manhattan());
+            long h = time(heap, m);
+            long b = time(buckets, m);
+            if (i >= WARMUP) {
+                heapTime += h;
+                bucketTime += b;
+                heapNodes += heap.getNumNodes();
+                bucketNodes += buckets.getNumNodes();
+            }
+        }
+        report("heap", heapTime, heapNodes, trials);
+        report("buckets", bucketTime, bucketNodes, trials);
+    }
+
+    private static long time(BestFirstSearcher<MazeExplorer> searcher, Maze m) {
+        long start = System.nanoTime();
+        searcher.solve(new MazeExplorer(m, m.getStart()), new MazeExplorer(m, m.getEnd()));
+        long duration = System.nanoTime() - start;
+        if (!searcher.success()) {
+            throw new IllegalStateException("No solution found");
+        }
+        return duration;
+    }
+
+    private static void report(String label, long nanos, long nodes, int trials) {
+        System.out.printf("%-8s %8.1f ms/solve %10d nodes/solve %8.0f nodes/ms%n", label,
+                nanos / 1e6 / trials, nodes / trials, nodes / (nanos / 1e6));
+    }
+}
@@ -1,6 +1,8 @@
 package maze.core;
+// An immutable grid coordinate.  Maze.getCell() shares one instance per
+// coordinate, but cells built directly are equal to the shared ones.
 public class MazeCell implements Comparable<MazeCell> {
-    private int x, y;
+    private final int x, y;
     
     public MazeCell(int x, int y) {
         this.x = x;
@@ -29,7 +31,8 @@ public class MazeCell implements Comparable<MazeCell> {
         
     public String toString() {return "(" + x + ", " + y + ")";}
    
-    public int hashCode() {return toString().hashCode();}
+    // Distinct for every coordinate below 65536
+    public int hashCode() {return (x << 16) ^ y;}
     
     public boolean isNeighbor(MazeCell other) {
         boolean xDiffer = Math.abs(X() - other.X()) == 1;
@@ -0,0 +1,97 @@
+package maze.core;
+
+import java.lang.management.ManagementFactory;
+
+import search.core.BestFirstHeuristic;
+import search.core.BestFirstSearcher;
+
+// Measures time and allocation of the MazeCell-heavy operations on one
+// large maze: a sweep of getNeighbors() and isTreasure() over every cell,
+// a search whose heuristic works on MazeCells, and building and checking
+// the MazePath of its solution.  Allocation is read from the
+// HotSpot per-thread counter, so it is reported as -1 on other JVMs.
+public class MazeCellBenchmark {
+    private final static int WARMUP = 2;
+    
+    private final static BestFirstHeuristic<MazeExplorer> CELL_DISTANCE = 
+            (node, goal) -> node.getLocation().getManhattanDist(goal.getLocation());
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: MazeCellBenchmark size trials treasures");
+            System.exit(1);
+        }
+        int size = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+        int treasures = Integer.parseInt(args[2]);
+
+        Maze m = new Maze(size, size);
+        m.makeMaze(new MazeCell(0, 0), new MazeCell(size - 1, size - 1), treasures, 0.5);
+        long[] sweep = new long[2], solve = new long[2], path = new long[2];
+        long nodes = 0;
+        for (int i = 0; i < WARMUP + trials; ++i) {
+            boolean counted = i >= WARMUP;
+            long[] before = sample();
+            int found = sweep(m);
+            add(counted, sweep, before);
+
+            before = sample();
+            BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<>(CELL_DISTANCE);
+            MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+            endNode.addTreasures(m.getTreasures());
+            searcher.solve(new MazeExplorer(m, m.getStart()), endNode);
+            add(counted, solve, before);
+            if (counted) {nodes += searcher.getNumNodes();}
+
+            before = sample();
+            boolean solved = new MazePath(searcher, m).solvesMaze(m);
+            add(counted, path, before);
+            if (!solved || found != m.getTreasures().size()) {
+                throw new IllegalStateException("Benchmark maze was not solved");
+            }
+        }
+        report("sweep", sweep, trials);
+        report("solve", solve, trials);
+        System.out.printf("%-6s %9.1f ns/node %7.1f bytes/node%n", "", (double)solve[0] / nodes, (double)solve[1] / nodes);
+        report("path", path, trials);
+    }
+
+    // Post: Returns how many treasures the sweep saw
+    private static int sweep(Maze m) {
+        int found = 0, neighbors = 0;
+        for (int x = 0; x < m.getXSize(); ++x) {
+            for (int y = 0; y < m.getYSize(); ++y) {
+                neighbors += m.getNeighbors(m.cellAt(m.cellIndex(x, y))).size();
+                if (m.isTreasure(x, y)) {found++;}
+            }
+        }
+        if (neighbors == 0) {throw new IllegalStateException();}
+        return found;
+    }
+
+    private static long[] sample() {
+        return new long[]{System.nanoTime(), allocatedBytes()};
+    }
+
+    private static void add(boolean counted, long[] total, long[] before) {
+        if (counted) {
+            total[0] += System.nanoTime() - before[0];
+            total[1] += allocatedBytes() - before[1];
+        }
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        } else {
+            return -1;
+        }
+    }
+
+    private static void report(String label, long[] total, int trials) {
+        double ms = total[0] / 1e6 / trials;
+        double mb = total[1] / 1e6 / trials;
+        System.out.printf("%-6s %9.1f ms %10.1f MB allocated %8.0f MB/s%n", label, ms, mb, mb / (ms / 1000));
+    }
+}
@@ -0,0 +1,99 @@
+package maze.core;
+
+// Which cells of a maze can reach which, as a union-find forest over the
+// cells.  label[cell] leads to the root of cell's component; finds halve
+// the paths they walk, so after the first query a label is usually the
+// root itself.  Two cells count as joined if the wall between them is
+// open from either side, so connected() never rejects a route a search
+// could find.  Removing a wall through Maze.setWall() joins the two
+// components at once.  Raising one may split a component, which a
+// union-find cannot undo, so the labels are rebuilt at the next query.
+// of() keeps one index on each Maze up to date; all methods are
+// synchronized.
+public class MazeComponents implements MazeListener {
+    private final static Direction[] FORWARD = {Direction.E, Direction.S};
+
+    private Maze m;
+    private int[] label;
+    private int numComponents;
+    private boolean stale;
+
+    // Post: Labels the components of m as its walls stand now
+    public MazeComponents(Maze m) {
+        this.m = m;
+        label = new int[m.numCells()];
+        build();
+    }
+
+    // Post: Returns the shared index of m, building it on first use; it
+    //       follows every setWall()
+    public static synchronized MazeComponents of(Maze m) {
+        if (m.components == null) {
+            m.components = new MazeComponents(m);
+            m.addListener(m.components);
+        }
+        return m.components;
+    }
+
+    // Pre: 0 <= cell < m.numCells()
+    // Post: Returns a cell that stands for cell's whole component
+    public synchronized int componentOf(int cell) {
+        if (stale) {build();}
+        return find(cell);
+    }
+
+    // Pre: 0 <= a, b < m.numCells()
+    // Post: Returns true if a route may join a and b
+    public synchronized boolean connected(int a, int b) {
+        if (stale) {build();}
+        return find(a) == find(b);
+    }
+
+    public synchronized int numComponents() {
+        if (stale) {build();}
+        return numComponents;
+    }
+
+    @Override
+    public synchronized void wallChanged(Maze maze, int cell, Direction d) {
+        int next = maze.neighbor(cell, d);
+        if (!maze.blocked(cell, d) || !maze.blocked(next, d.opposite())) {
+            union(cell, next);
+        } else {
+            stale = true;
+        }
+    }
+
+    private void build() {
+        for (int cell = 0; cell < label.length; ++cell) {
+            label[cell] = cell;
+        }
+        numComponents = label.length;
+        for (int cell = 0; cell < label.length; ++cell) {
+            for (Direction d: FORWARD) {
+                int next = m.neighbor(cell, d);
+                if (next >= 0 && (!m.blocked(cell, d) || !m.blocked(next, d.opposite()))) {
+                    union(cell, next);
+                }
+            }
+        }
+        stale = false;
+    }
+
+    private int find(int cell) {
+        while (label[cell] != cell) {
+            label[cell] = label[label[cell]];
+            cell = label[cell];
+        }
+        return cell;
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a != b) {
+            label[Math.max(a, b)] = Math.min(a, b);
+            numComponents--;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package maze.core;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// True maze distances, found by breadth-first search through the open
+// walls.  Each table holds the distance from one source cell to every
+// cell, indexed by cell, with UNREACHABLE for cells that cannot be
+// reached.  of() keeps one MazeDistances on each Maze, and each of those
+// keeps the tables it has built, so a table is computed once per source
+// however many searches ask for it.  The shared tables are forgotten
+// whenever Maze.setWall() changes a wall.  Everything here is thread-safe.
+public class MazeDistances {
+    public final static int UNREACHABLE = -1;
+    
+    private Maze m;
+    private ConcurrentHashMap<Integer,int[]> tables;
+    
+    private MazeDistances(Maze m) {
+        this.m = m;
+        tables = new ConcurrentHashMap<Integer,int[]>();
+    }
+    
+    // Post: Returns the shared distance tables of m
+    public static synchronized MazeDistances of(Maze m) {
+        if (m.distances == null) {
+            m.distances = new MazeDistances(m);
+            m.addListener(MazeDistances::wallChanged);
+        }
+        return m.distances;
+    }
+    
+    private static void wallChanged(Maze maze, int cell, Direction d) {
+        maze.distances.clear();
+    }
+    
+    // Pre: 0 <= source < m.numCells()
+    // Post: Returns the distances from source; the caller must not change
+    //       the table
+    public int[] from(int source) {
+        return tables.computeIfAbsent(source, s -> bfs(m, s));
+    }
+    
+    // Post: Forgets every table; needed once m's walls change, which of()
+    //       arranges for the tables it shares
+    public void clear() {tables.clear();}
+    
+    // Pre: 0 <= source < m.numCells()
+    // Post: Returns a new table of the distances from source
+    public static int[] bfs(Maze m, int source) {
+        int[] dist = new int[m.numCells()];
+        Arrays.fill(dist, UNREACHABLE);
+        int[] queue = new int[m.numCells()];
+        int[] open = new int[4];
+        int head = 0, tail = 0;
+        dist[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            int n = m.openNeighbors(cell, open);
+            for (int i = 0; i < n; ++i) {
+                if (dist[open[i]] == UNREACHABLE) {
+                    dist[open[i]] = dist[cell] + 1;
+                    queue[tail++] = open[i];
+                }
+            }
+        }
+        return dist;
+    }
+}
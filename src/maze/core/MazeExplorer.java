@@ -4,55 +4,163 @@ import java.util.*;
 
 import search.core.BestFirstObject;
 
+// A position in a maze together with the treasures collected on the way
+// there.  The position is a Maze cell index and the treasures are a
+// bitmask over Maze.treasureNumber(), kept in one long when the maze has
+// at most 64 treasures and in a long[] otherwise.  A long[] may be shared
+// between explorers, so it is copied before it is changed.  An explorer
+// made with a JunctionGraph moves along whole corridors between the
+// graph's nodes, and each move costs the corridor's length.
 public class MazeExplorer implements BestFirstObject<MazeExplorer> {
 	private Maze m;
-	private MazeCell location;
-	private TreeSet<MazeCell> treasureFound; 
+	private JunctionGraph graph;
+	private int cell;
+	private long found;
+	private long[] wideFound;
 	
 	public MazeExplorer(Maze m, MazeCell location) {
+		this(m, m.cellIndex(location));
+	}
+	
+	// Pre: 0 <= cell < m.numCells()
+	public MazeExplorer(Maze m, int cell) {
 		this.m = m;
-		this.location = location;
-		treasureFound = new TreeSet<MazeCell>();
+		this.cell = cell;
+		found = 0;
+		wideFound = m.numTreasures() > 64 ? new long[(m.numTreasures() + 63) / 64] : null;
+	}
+	
+	// Pre: g.isNode(g.getMaze().cellIndex(location))
+	public MazeExplorer(JunctionGraph g, MazeCell location) {
+		this(g.getMaze(), location);
+		graph = g;
+	}
+	
+	private MazeExplorer(MazeExplorer parent, int cell) {
+		this.m = parent.m;
+		this.graph = parent.graph;
+		this.cell = cell;
+		this.found = parent.found;
+		this.wideFound = parent.wideFound;
+		int t = m.treasureNumber(cell);
+		if (t >= 0 && !hasTreasure(t)) {
+			addTreasure(t);
+		}
 	}
 	
-	public MazeCell getLocation() {return location;}
+	public MazeCell getLocation() {return m.cellAt(cell);}
     public Maze getMaze() { return this.m;}
-
+    
+    public int getCell() {return cell;}
+    public int getX() {return m.xOf(cell);}
+    public int getY() {return m.yOf(cell);}
+    
+    // Post: Returns the graph this explorer moves on, or null if it moves
+    //       one cell at a time
+    public JunctionGraph getGraph() {return graph;}
 
 	@Override
 	public ArrayList<MazeExplorer> getSuccessors() {
-		ArrayList<MazeExplorer> result = new ArrayList<MazeExplorer>();
-		// TODO: It should add as a successor every adjacent, unblocked neighbor square.
-        ArrayList<MazeCell> neighbors = m.getNeighbors(this.getLocation());
-
-        for ( MazeCell node : neighbors){
-            if ( !m.blocked(this.getLocation(), node) && m.within(this.getLocation())) {
-                MazeExplorer successor = new MazeExplorer(m, node);
-                if (m.isTreasure(node)) {
-                    successor.treasureFound.add(node);
-                }
-                successor.addTreasures(treasureFound);
-                result.add(successor);
-            }
-        }
+		ArrayList<MazeExplorer> result = new ArrayList<MazeExplorer>(4);
+		if (graph != null) {
+			int[] next = new int[4];
+			int n = graph.adjacent(cell, next);
+			for (int i = 0; i < n; ++i) {
+				result.add(new MazeExplorer(this, next[i]));
+			}
+			return result;
+		}
+		int x = getX(), y = getY();
+		int walls = m.wallBits(x, y);
+		for (Direction d: Direction.ALL) {
+			if ((walls & d.bit()) == 0 && m.within(x + d.dx(), y + d.dy())) {
+				result.add(new MazeExplorer(this, m.cellIndex(x + d.dx(), y + d.dy())));
+			}
+		}
         return result;
 	}
-	 public void addTreasures(Collection<MazeCell> treasures) {
-		treasureFound.addAll(treasures);
+	
+	@Override
+	public int getCost(MazeExplorer successor) {
+		return graph == null ? 1 : graph.cost(cell, successor.cell);
+	}
+	
+	// Post: Consults MazeComponents, so returns false at once when the
+	//       goal or a treasure it still needs is walled off from here, but
+	//       only for a maze that checksReachability()
+	@Override
+	public boolean mayReach(MazeExplorer goal) {
+		if (!m.checksReachability()) {return true;}
+		MazeComponents components = MazeComponents.of(m);
+		int here = components.componentOf(cell);
+		if (components.componentOf(goal.cell) != here) {
+			return false;
+		}
+		for (int n = 0; n < m.numTreasures(); ++n) {
+			if (goal.hasTreasure(n) && !hasTreasure(n) && components.componentOf(m.treasureCell(n)) != here) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Pre: Every cell in treasures holds a treasure of this maze
+	public void addTreasures(Collection<MazeCell> treasures) {
+		for (MazeCell t: treasures) {
+			int n = m.treasureNumber(m.cellIndex(t));
+			if (n < 0) {
+				throw new IllegalArgumentException(t + " holds no treasure");
+			}
+			addTreasure(n);
+		}
+	}
+	
+	// Pre: 0 <= n < m.numTreasures()
+	public boolean hasTreasure(int n) {
+		if (wideFound == null) {
+			return (found & (1L << n)) != 0;
+		} else {
+			return (wideFound[n >> 6] & (1L << n)) != 0;
+		}
+	}
+	
+	private void addTreasure(int n) {
+		if (wideFound == null) {
+			found |= 1L << n;
+		} else {
+			wideFound = wideFound.clone();
+			wideFound[n >> 6] |= 1L << n;
+		}
+	}
+	
+	public int numTreasuresFound() {
+		if (wideFound == null) {
+			return Long.bitCount(found);
+		}
+		int count = 0;
+		for (long word: wideFound) {
+			count += Long.bitCount(word);
+		}
+		return count;
 	}
-
 
 	public String toString() {
 		StringBuilder treasures = new StringBuilder();
-		for (MazeCell t: treasureFound) {
+		for (MazeCell t: getTreasureFound()) {
 			treasures.append(";");
 			treasures.append(t.toString());
 		}
-		return "@" + location.toString() + treasures.toString();
+		return "@" + getLocation().toString() + treasures.toString();
 	}
 	
 	@Override
-	public int hashCode() {return toString().hashCode();}
+	public int hashCode() {
+		long bits = found;
+		if (wideFound != null) {
+			bits = Arrays.hashCode(wideFound);
+		}
+		return cell * 31 + (int)(bits ^ (bits >>> 32));
+	}
 	
 	@Override
 	public boolean equals(Object other) {
@@ -65,10 +173,18 @@ public class MazeExplorer implements BestFirstObject<MazeExplorer> {
 
 	@Override
 	public boolean achieves(MazeExplorer goal) {
-		return this.location.equals(goal.location) && this.treasureFound.equals(goal.treasureFound);
+		return this.cell == goal.cell && this.found == goal.found 
+				&& (wideFound == goal.wideFound || Arrays.equals(wideFound, goal.wideFound));
 	}
+	
 	public SortedSet<MazeCell> getTreasureFound() {
-		return Collections.unmodifiableSortedSet(treasureFound);
+		TreeSet<MazeCell> result = new TreeSet<MazeCell>();
+		for (int n = 0; n < m.numTreasures(); ++n) {
+			if (hasTreasure(n)) {
+				result.add(m.cellAt(m.treasureCell(n)));
+			}
+		}
+		return Collections.unmodifiableSortedSet(result);
 	}
 
 }
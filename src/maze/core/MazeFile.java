@@ -0,0 +1,126 @@
+package maze.core;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// A compact binary file for a Maze.  All numbers are big-endian ints:
+//
+//   MAGIC, VERSION, xSize, ySize,
+//   start x, start y, end x, end y   (-1 for a missing start or end),
+//   number of treasures, then the cell index of each treasure,
+//
+// followed by the wall nibbles exactly as Maze keeps them in memory.
+// map() hands those bytes to the Maze through FileChannel.map, so a maze
+// opens in time proportional to its header and the operating system
+// pages the walls in as a search touches them.
+public class MazeFile {
+    public final static int MAGIC = 0x4D415A45; // "MAZE"
+    public final static int VERSION = 1;
+    
+    private final static int FIXED_HEADER_INTS = 9;
+    
+    public static void write(Maze m, File f) throws IOException {
+        int numTreasures = m.numTreasures();
+        ByteBuffer header = ByteBuffer.allocate(4 * (FIXED_HEADER_INTS + numTreasures));
+        header.putInt(MAGIC).putInt(VERSION).putInt(m.getXSize()).putInt(m.getYSize());
+        putCell(header, m.getStart());
+        putCell(header, m.getEnd());
+        header.putInt(numTreasures);
+        for (int n = 0; n < numTreasures; ++n) {
+            header.putInt(m.treasureCell(n));
+        }
+        header.flip();
+        
+        try (FileChannel out = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, 
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, header);
+            writeFully(out, m.getWallBytes());
+        }
+    }
+    
+    private static void putCell(ByteBuffer header, MazeCell c) {
+        header.putInt(c == null ? -1 : c.X());
+        header.putInt(c == null ? -1 : c.Y());
+    }
+    
+    private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+    
+    // Post: Returns the maze in f; it cannot be changed
+    public static Maze map(File f) throws IOException {
+        return map(f, false);
+    }
+    
+    // Post: Returns the maze in f; if writable, walls knocked down in the
+    //       maze are written back to f
+    public static Maze map(File f, boolean writable) throws IOException {
+        StandardOpenOption[] options = writable 
+                ? new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[]{StandardOpenOption.READ};
+        try (FileChannel in = FileChannel.open(f.toPath(), options)) {
+            ByteBuffer fixed = readFully(in, 0, 4 * FIXED_HEADER_INTS);
+            if (fixed.getInt() != MAGIC) {
+                throw new IOException(f + " is not a maze file");
+            }
+            int version = fixed.getInt();
+            if (version != VERSION) {
+                throw new IOException(f + " has maze file version " + version + ", not " + VERSION);
+            }
+            int xSize = fixed.getInt(), ySize = fixed.getInt();
+            int startX = fixed.getInt(), startY = fixed.getInt();
+            int endX = fixed.getInt(), endY = fixed.getInt();
+            int numTreasures = fixed.getInt();
+            if (xSize <= 0 || ySize <= 0 || (long)xSize * ySize > Integer.MAX_VALUE || numTreasures < 0) {
+                throw new IOException(f + " has a corrupt header");
+            }
+            if (!isEnd(startX, startY, xSize, ySize) || !isEnd(endX, endY, xSize, ySize)) {
+                throw new IOException(f + " has a start or end outside the maze");
+            }
+            
+            long wallStart = 4L * (FIXED_HEADER_INTS + numTreasures);
+            int wallBytes = Maze.wallBytes(xSize, ySize);
+            if (in.size() != wallStart + wallBytes) {
+                throw new IOException(f + " should hold " + (wallStart + wallBytes) + " bytes, not " + in.size());
+            }
+            ByteBuffer walls = in.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 
+                                      wallStart, wallBytes);
+            Maze m = new Maze(xSize, ySize, walls);
+            m.setEnds(startX < 0 ? null : m.getCell(startX, startY), endX < 0 ? null : m.getCell(endX, endY));
+            
+            ByteBuffer treasures = readFully(in, 4 * FIXED_HEADER_INTS, 4 * numTreasures);
+            ArrayList<MazeCell> cells = new ArrayList<MazeCell>(numTreasures);
+            for (int n = 0; n < numTreasures; ++n) {
+                int cell = treasures.getInt();
+                if (cell < 0 || cell >= m.numCells()) {
+                    throw new IOException(f + " has a treasure outside the maze");
+                }
+                cells.add(m.cellAt(cell));
+            }
+            m.setTreasures(cells);
+            return m;
+        }
+    }
+    
+    // Post: Returns true if (x, y) is a cell of an xSize by ySize maze, or
+    //       (-1, -1) for a missing start or end
+    private static boolean isEnd(int x, int y, int xSize, int ySize) {
+        return (x == -1 && y == -1) || (x >= 0 && x < xSize && y >= 0 && y < ySize);
+    }
+    
+    private static ByteBuffer readFully(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (in.read(bytes, position + bytes.position()) < 0) {
+                throw new EOFException("Maze file ends inside its header");
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+}
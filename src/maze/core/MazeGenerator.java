@@ -0,0 +1,357 @@
+package maze.core;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Builds random mazes that depend only on a seed.  carve() fills in a Maze
+// with a randomized depth-first spanning tree, grown from the end, whose
+// only bookkeeping is an int stack: a cell counts as visited once any of
+// its walls is down.  writeEller() never holds more than one row, so it
+// can stream mazes far larger than memory straight to a file, in the text
+// format of Maze.toString().  Either way, each wall left over by the tree
+// is then knocked down with probability 1 - perfection.
+//
+// carveParallel() splits the grid into tiles, carves a tree in each one
+// on a fork/join pool, and joins the trees through a random spanning tree
+// of the tiles.  Tiles start at even x-offsets, so no two of them share a
+// byte of the maze's wall array.  Each tile and each band of the loop pass
+// draws from its own generator, split from the seed in a fixed order, so
+// the maze depends on the seed and the tile size but not on the number of
+// threads.
+public class MazeGenerator {
+    public final static int DEFAULT_TILE_SIZE = 256;
+    
+    private long seed;
+    private int tileSize;
+    
+    public MazeGenerator(long seed) {
+        this.seed = seed;
+        tileSize = DEFAULT_TILE_SIZE;
+    }
+    
+    public long getSeed() {return seed;}
+    
+    // Pre: size is even and at least 2
+    // Post: carveParallel() uses tiles of size by size cells
+    public void setTileSize(int size) {
+        if (size < 2 || size % 2 != 0) {
+            throw new IllegalArgumentException("Tile size must be even and at least 2, not " + size);
+        }
+        tileSize = size;
+    }
+    
+    // Pre: Every wall of m is up; start and end are within m;
+    //      0 <= perfection <= 1
+    // Post: m is a maze from start to end with numTreasures treasures
+    public void carve(Maze m, MazeCell start, MazeCell end, int numTreasures, double perfection) {
+        SplittableRandom random = new SplittableRandom(seed);
+        m.setEnds(start, end);
+        if (carveTree(m, end.X(), end.Y(), 0, 0, m.getXSize(), m.getYSize(), random) != m.numCells()) {
+            throw new IllegalStateException("Some cells weren't visited");
+        }
+        addLoops(m, 0, m.getYSize(), perfection, random, true);
+        m.placeTreasures(numTreasures, random);
+        m.setReachabilityCheck(false);
+    }
+    
+    // Pre: As for carve(); threads > 0
+    // Post: As for carve(), but the tiles are carved and the loops added
+    //       by threads threads
+    public void carveParallel(Maze m, MazeCell start, MazeCell end, int numTreasures, double perfection, int threads) {
+        SplittableRandom random = new SplittableRandom(seed);
+        m.setEnds(start, end);
+        int tilesX = (m.getXSize() + tileSize - 1) / tileSize;
+        int tilesY = (m.getYSize() + tileSize - 1) / tileSize;
+        SplittableRandom[] tileRandoms = new SplittableRandom[tilesX * tilesY];
+        for (int i = 0; i < tileRandoms.length; ++i) {
+            tileRandoms[i] = random.split();
+        }
+        SplittableRandom[] bandRandoms = new SplittableRandom[tilesY];
+        for (int i = 0; i < bandRandoms.length; ++i) {
+            bandRandoms[i] = random.split();
+        }
+        
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new RangeTask(0, tileRandoms.length, tile -> {
+                int x0 = (tile % tilesX) * tileSize, y0 = (tile / tilesX) * tileSize;
+                int x1 = Math.min(x0 + tileSize, m.getXSize()), y1 = Math.min(y0 + tileSize, m.getYSize());
+                if (carveTree(m, x0, y0, x0, y0, x1, y1, tileRandoms[tile]) != (x1 - x0) * (y1 - y0)) {
+                    throw new IllegalStateException("Some cells of tile " + tile + " weren't visited");
+                }
+            }));
+            joinTiles(m, tilesX, tilesY, random);
+            
+            // The south walls of a band's last row belong to the next
+            // band's bytes, so they wait until every band is done
+            pool.invoke(new RangeTask(0, tilesY, band -> {
+                int y0 = band * tileSize, y1 = Math.min(y0 + tileSize, m.getYSize());
+                addLoops(m, y0, y1, perfection, bandRandoms[band], false);
+            }));
+        } finally {
+            pool.shutdown();
+        }
+        for (int band = 0; band + 1 < tilesY; ++band) {
+            addSouthLoops(m, (band + 1) * tileSize - 1, perfection, random);
+        }
+        m.placeTreasures(numTreasures, random);
+        m.setReachabilityCheck(false);
+    }
+    
+    // Post: Runs body on every index from start to end - 1, splitting the
+    //       range in half until single indices remain
+    @SuppressWarnings("serial")
+    private static class RangeTask extends RecursiveAction {
+        private int start, end;
+        private java.util.function.IntConsumer body;
+        
+        RangeTask(int start, int end, java.util.function.IntConsumer body) {
+            this.start = start;
+            this.end = end;
+            this.body = body;
+        }
+        
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                body.accept(start);
+            } else if (end > start) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new RangeTask(start, mid, body), new RangeTask(mid, end, body));
+            }
+        }
+    }
+    
+    // Pre: Each tile holds a spanning tree of its own cells
+    // Post: A random spanning tree of the tiles has been chosen, and one
+    //       random wall on the border of each pair of tiles it links has
+    //       been knocked down, so the maze is one spanning tree
+    private void joinTiles(Maze m, int tilesX, int tilesY, SplittableRandom random) {
+        boolean[] joined = new boolean[tilesX * tilesY];
+        int[] stack = new int[tilesX * tilesY];
+        int[] choices = new int[4];
+        int top = 0;
+        stack[top++] = 0;
+        joined[0] = true;
+        while (top > 0) {
+            int tile = stack[top - 1];
+            int tx = tile % tilesX, ty = tile / tilesX;
+            int numChoices = 0;
+            for (Direction d: Direction.ALL) {
+                int nx = tx + d.dx(), ny = ty + d.dy();
+                if (nx >= 0 && nx < tilesX && ny >= 0 && ny < tilesY && !joined[ny * tilesX + nx]) {
+                    choices[numChoices++] = d.ordinal();
+                }
+            }
+            if (numChoices == 0) {
+                top--;
+            } else {
+                Direction d = Direction.ALL[choices[random.nextInt(numChoices)]];
+                int next = (ty + d.dy()) * tilesX + tx + d.dx();
+                int x0 = tx * tileSize, y0 = ty * tileSize;
+                if (d.dx() != 0) {
+                    int x = d == Direction.E ? x0 + tileSize - 1 : x0;
+                    int height = Math.min(tileSize, m.getYSize() - y0);
+                    m.knockDownBetween(x, y0 + random.nextInt(height), d);
+                } else {
+                    int y = d == Direction.S ? y0 + tileSize - 1 : y0;
+                    int width = Math.min(tileSize, m.getXSize() - x0);
+                    m.knockDownBetween(x0 + random.nextInt(width), y, d);
+                }
+                joined[next] = true;
+                stack[top++] = next;
+            }
+        }
+    }
+    
+    // Pre: Every cell in the box from (xMin, yMin) to (xMax - 1, yMax - 1)
+    //      other than (x, y) has all its walls up
+    // Post: Carves a spanning tree of the box, grown from (x, y), and
+    //       returns how many cells it holds
+    static int carveTree(Maze m, int x, int y, int xMin, int yMin, int xMax, int yMax, SplittableRandom random) {
+        int root = m.cellIndex(x, y);
+        int[] stack = new int[64];
+        int[] choices = new int[4];
+        int top = 0, visited = 1;
+        stack[top++] = root;
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int cx = m.xOf(cell), cy = m.yOf(cell);
+            int numChoices = 0;
+            for (Direction d: Direction.ALL) {
+                int nx = cx + d.dx(), ny = cy + d.dy();
+                if (nx >= xMin && nx < xMax && ny >= yMin && ny < yMax 
+                        && m.wallBits(nx, ny) == 0xF && m.cellIndex(nx, ny) != root) {
+                    choices[numChoices++] = d.ordinal();
+                }
+            }
+            if (numChoices == 0) {
+                top--;
+            } else {
+                Direction d = Direction.ALL[choices[random.nextInt(numChoices)]];
+                m.knockDownBetween(cx, cy, d);
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * top);
+                }
+                stack[top++] = m.cellIndex(cx + d.dx(), cy + d.dy());
+                visited++;
+            }
+        }
+        return visited;
+    }
+    
+    // Post: Each east and south wall of rows yStart to yEnd - 1 that is
+    //       still up, other than those on the border, has been knocked
+    //       down with probability 1 - perfection; if lastSouth is false,
+    //       the south walls of row yEnd - 1 are left alone
+    static void addLoops(Maze m, int yStart, int yEnd, double perfection, SplittableRandom random, boolean lastSouth) {
+        for (int y = yStart; y < yEnd; ++y) {
+            for (int x = 0; x < m.getXSize(); ++x) {
+                if (x < m.getXMax() && m.blocked(x, y, Direction.E) && random.nextDouble() >= perfection) {
+                    m.knockDownBetween(x, y, Direction.E);
+                }
+            }
+            if (y < yEnd - 1 || lastSouth) {
+                addSouthLoops(m, y, perfection, random);
+            }
+        }
+    }
+    
+    // Post: Each south wall of row y still up, other than those on the
+    //       border, has been knocked down with probability 1 - perfection
+    static void addSouthLoops(Maze m, int y, double perfection, SplittableRandom random) {
+        if (y < m.getYMax()) {
+            for (int x = 0; x < m.getXSize(); ++x) {
+                if (m.blocked(x, y, Direction.S) && random.nextDouble() >= perfection) {
+                    m.knockDownBetween(x, y, Direction.S);
+                }
+            }
+        }
+    }
+    
+    // Pre: xSize > 0; ySize > 0; start and end lie within xSize by ySize;
+    //      0 <= perfection <= 1
+    // Post: Writes a random xSize by ySize maze to out, a row at a time,
+    //       using Eller's algorithm; memory use is proportional to xSize
+    //       alone.  out is not closed, and should be buffered.
+    public void writeEller(Writer out, int xSize, long ySize, MazeCell start, MazeCell end, 
+                           int numTreasures, double perfection) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] label = new int[xSize];
+        int[] parent = new int[2 * xSize];
+        int[] remap = new int[2 * xSize];
+        int[] count = new int[2 * xSize];
+        boolean[] wentDown = new boolean[2 * xSize];
+        boolean[] openEast = new boolean[xSize];
+        boolean[] openSouth = new boolean[xSize];
+        char[] line = new char[2 * xSize + 2];
+        line[2 * xSize + 1] = '\n';
+        long numUntried = (long)xSize * ySize - 2;
+        
+        Arrays.fill(label, -1);
+        for (long y = 0; y < ySize; ++y) {
+            boolean lastRow = y == ySize - 1;
+            
+            // Renumber the sets carried down from the last row from 0, and
+            // give every cell not joined from above a set of its own
+            Arrays.fill(remap, -1);
+            int numSets = 0;
+            for (int x = 0; x < xSize; ++x) {
+                if (label[x] >= 0) {
+                    int root = find(parent, label[x]);
+                    if (remap[root] < 0) {remap[root] = numSets++;}
+                    label[x] = remap[root];
+                }
+            }
+            for (int x = 0; x < xSize; ++x) {
+                if (label[x] < 0) {label[x] = numSets++;}
+            }
+            for (int i = 0; i < numSets; ++i) {parent[i] = i;}
+            
+            // Join neighbors in different sets at random, or always on the
+            // last row; a wall within one set would close a loop
+            for (int x = 0; x + 1 < xSize; ++x) {
+                int a = find(parent, label[x]), b = find(parent, label[x + 1]);
+                if (a != b) {
+                    openEast[x] = lastRow || random.nextBoolean();
+                    if (openEast[x]) {parent[b] = a;}
+                } else {
+                    openEast[x] = random.nextDouble() >= perfection;
+                }
+            }
+            
+            for (int x = 0; x < xSize; ++x) {
+                line[2 * x] = '#';
+                line[2 * x + 1] = (y > 0 && openSouth[x]) ? ' ' : '#';
+            }
+            line[2 * xSize] = '#';
+            out.write(line);
+            
+            line[0] = '#';
+            for (int x = 0; x < xSize; ++x) {
+                char mark = ' ';
+                if (x == start.X() && y == start.Y()) {
+                    mark = Maze.START_MARK;
+                } else if (x == end.X() && y == end.Y()) {
+                    mark = Maze.END_MARK;
+                } else {
+                    if (random.nextDouble() * numUntried < numTreasures) {
+                        mark = Maze.TREASURE_MARK;
+                        numTreasures--;
+                    }
+                    numUntried--;
+                }
+                line[2 * x + 1] = mark;
+                line[2 * x + 2] = (x + 1 < xSize && openEast[x]) ? ' ' : '#';
+            }
+            out.write(line);
+            
+            // Every set must continue into the next row through at least
+            // one of its cells
+            if (!lastRow) {
+                Arrays.fill(count, 0, numSets, 0);
+                Arrays.fill(wentDown, 0, numSets, false);
+                for (int x = 0; x < xSize; ++x) {
+                    count[find(parent, label[x])]++;
+                }
+                for (int x = 0; x < xSize; ++x) {
+                    int root = find(parent, label[x]);
+                    count[root]--;
+                    openSouth[x] = random.nextBoolean() || (count[root] == 0 && !wentDown[root])
+                            || random.nextDouble() >= perfection;
+                    wentDown[root] |= openSouth[x];
+                    label[x] = openSouth[x] ? root : -1;
+                }
+            }
+        }
+        
+        for (int x = 0; x < xSize; ++x) {
+            line[2 * x] = line[2 * x + 1] = '#';
+        }
+        line[2 * xSize] = '#';
+        out.write(line);
+    }
+    
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5) {
+            System.out.println("Usage: MazeGenerator xSize ySize seed perfection file");
+            System.exit(1);
+        }
+        int xSize = Integer.parseInt(args[0]);
+        long ySize = Long.parseLong(args[1]);
+        MazeGenerator gen = new MazeGenerator(Long.parseLong(args[2]));
+        try (Writer out = new BufferedWriter(new FileWriter(args[4]), 1 << 16)) {
+            gen.writeEller(out, xSize, ySize, new MazeCell(0, 0), new MazeCell(xSize - 1, (int)Math.min(ySize - 1, Integer.MAX_VALUE)), 
+                           0, Double.parseDouble(args[3]));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package maze.core;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+// Landmarks for the ALT (A*, landmarks, triangle inequality) lower bound.
+// For every landmark L and cells a and b, d(a, b) >= |d(L, a) - d(L, b)|,
+// so the largest of these differences over a few landmarks is an
+// admissible estimate, and far tighter than Manhattan distance in a maze.
+// select() picks landmarks farthest-first, each one the reachable cell
+// farthest from those already chosen, so they sit at the ends of long
+// corridors where the bound is sharpest.  Once Maze.setWall() changes a
+// wall the tables may overestimate, so they count as stale and of()
+// selects fresh ones.
+//
+// The tables can be saved next to a maze file.  Such a file holds, as
+// big-endian ints:
+//
+//   MAGIC, VERSION, xSize, ySize, CRC-32 of the walls, k,
+//   the cell of each landmark, then each landmark's distance table,
+//
+// and is only read back for a maze with the same walls.
+public class MazeLandmarks {
+    public final static int MAGIC = 0x4C4D524B; // "LMRK"
+    public final static int VERSION = 1;
+    public final static int DEFAULT_LANDMARKS = 8;
+    public final static String SUFFIX = ".alt";
+
+    private final static int FIXED_HEADER_INTS = 6;
+
+    private Maze m;
+    private int numWallChanges;
+    private int[] cells;
+    private int[][] tables;
+
+    // Pre: tables were computed after numWallChanges changes to m's walls
+    private MazeLandmarks(Maze m, int numWallChanges, int[] cells, int[][] tables) {
+        this.m = m;
+        this.numWallChanges = numWallChanges;
+        this.cells = cells;
+        this.tables = tables;
+    }
+
+    // Pre: 0 <= cells[i] < m.numCells()
+    // Post: Computes a distance table for each landmark, in parallel
+    public MazeLandmarks(Maze m, int[] cells) {
+        this(m, m.getNumWallChanges(), cells.clone(), IntStream.of(cells).parallel()
+                .mapToObj(cell -> MazeDistances.bfs(m, cell)).toArray(int[][]::new));
+    }
+
+    // Pre: k >= 1
+    // Post: Chooses k landmarks of m farthest-first.  Each choice needs the
+    //       table of the one before, so the searches run one at a time.
+    public static MazeLandmarks select(Maze m, int k) {
+        int numWallChanges = m.getNumWallChanges();
+        int[] cells = new int[k];
+        int[][] tables = new int[k][];
+        int seed = m.getStart() == null ? 0 : m.cellIndex(m.getStart());
+        // Distances from the seed, then to the nearest chosen landmark
+        int[] nearest = MazeDistances.bfs(m, seed);
+        for (int i = 0; i < k; ++i) {
+            int farthest = seed;
+            for (int cell = 0; cell < nearest.length; ++cell) {
+                if (nearest[cell] > nearest[farthest]) {
+                    farthest = cell;
+                }
+            }
+            cells[i] = farthest;
+            tables[i] = MazeDistances.bfs(m, farthest);
+            for (int cell = 0; cell < nearest.length; ++cell) {
+                nearest[cell] = (i == 0) ? tables[i][cell] : Math.min(nearest[cell], tables[i][cell]);
+            }
+        }
+        return new MazeLandmarks(m, numWallChanges, cells, tables);
+    }
+
+    // Post: Returns the shared landmarks of m, selecting
+    //       DEFAULT_LANDMARKS of them on first use and whenever the shared
+    //       ones have gone stale
+    public static synchronized MazeLandmarks of(Maze m) {
+        if (m.landmarks == null || m.landmarks.isStale()) {
+            m.landmarks = select(m, DEFAULT_LANDMARKS);
+        }
+        return m.landmarks;
+    }
+
+    // Post: Makes the landmarks saved next to mazeFile the shared
+    //       landmarks of m, or, if there are none for m's walls, selects
+    //       k landmarks and saves them there
+    public static synchronized MazeLandmarks load(Maze m, File mazeFile, int k) throws IOException {
+        File f = fileFor(mazeFile);
+        MazeLandmarks l = null;
+        if (f.exists()) {
+            try {
+                l = read(m, f);
+            } catch (IOException stale) {
+                l = null;
+            }
+        }
+        if (l == null) {
+            l = select(m, k);
+            l.write(f);
+        }
+        m.landmarks = l;
+        return l;
+    }
+
+    // Post: Returns the file that holds the landmarks for mazeFile
+    public static File fileFor(File mazeFile) {
+        return new File(mazeFile.getPath() + SUFFIX);
+    }
+
+    public Maze getMaze() {return m;}
+
+    public int numLandmarks() {return cells.length;}
+
+    // Post: Returns true if a wall has changed since the tables were made
+    public boolean isStale() {return m.getNumWallChanges() != numWallChanges;}
+
+    // Pre: 0 <= n < numLandmarks()
+    public int getLandmark(int n) {return cells[n];}
+
+    // Pre: 0 <= a, b < getMaze().numCells()
+    // Post: Returns a lower bound on the maze distance from a to b
+    public int lowerBound(int a, int b) {
+        int best = 0;
+        for (int[] table: tables) {
+            int da = table[a], db = table[b];
+            if (da != MazeDistances.UNREACHABLE && db != MazeDistances.UNREACHABLE) {
+                best = Math.max(best, Math.abs(da - db));
+            }
+        }
+        return best;
+    }
+
+    public void write(File f) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4 * (FIXED_HEADER_INTS + cells.length));
+        header.putInt(MAGIC).putInt(VERSION).putInt(m.getXSize()).putInt(m.getYSize());
+        header.putInt(wallChecksum(m)).putInt(cells.length);
+        for (int cell: cells) {
+            header.putInt(cell);
+        }
+        header.flip();
+
+        try (FileChannel out = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, header);
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+            for (int[] table: tables) {
+                for (int start = 0; start < table.length; start += chunk.capacity() / 4) {
+                    int length = Math.min(chunk.capacity() / 4, table.length - start);
+                    chunk.clear();
+                    chunk.asIntBuffer().put(table, start, length);
+                    chunk.limit(4 * length);
+                    writeFully(out, chunk);
+                }
+            }
+        }
+    }
+
+    // Post: Returns the landmarks in f; throws IOException if they were
+    //       saved for a maze with different walls
+    public static MazeLandmarks read(Maze m, File f) throws IOException {
+        int numWallChanges = m.getNumWallChanges();
+        try (FileChannel in = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer fixed = readFully(in, 0, 4 * FIXED_HEADER_INTS);
+            if (fixed.getInt() != MAGIC) {
+                throw new IOException(f + " is not a landmark file");
+            }
+            int version = fixed.getInt();
+            if (version != VERSION) {
+                throw new IOException(f + " has landmark file version " + version + ", not " + VERSION);
+            }
+            if (fixed.getInt() != m.getXSize() || fixed.getInt() != m.getYSize() || fixed.getInt() != wallChecksum(m)) {
+                throw new IOException(f + " holds landmarks for a different maze");
+            }
+            int k = fixed.getInt();
+            long tableStart = 4L * (FIXED_HEADER_INTS + k);
+            if (k < 0 || in.size() != tableStart + 4L * k * m.numCells()) {
+                throw new IOException(f + " has a corrupt header");
+            }
+
+            ByteBuffer header = readFully(in, 4 * FIXED_HEADER_INTS, 4 * k);
+            int[] cells = new int[k];
+            int[][] tables = new int[k][m.numCells()];
+            for (int i = 0; i < k; ++i) {
+                cells[i] = header.getInt();
+                in.map(FileChannel.MapMode.READ_ONLY, tableStart + 4L * i * m.numCells(), 4L * m.numCells())
+                  .asIntBuffer().get(tables[i]);
+            }
+            return new MazeLandmarks(m, numWallChanges, cells, tables);
+        }
+    }
+
+    private static int wallChecksum(Maze m) {
+        CRC32 crc = new CRC32();
+        crc.update(m.getWallBytes());
+        return (int)crc.getValue();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (in.read(bytes, position + bytes.position()) < 0) {
+                throw new EOFException("Landmark file ends inside its header");
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+}
@@ -0,0 +1,8 @@
+package maze.core;
+
+// Told about every wall that Maze.setWall() raises or removes.
+public interface MazeListener {
+    // Post: Reacts to the wall on side d of cell, and the matching wall of
+    //       its neighbor, having changed in m
+    public void wallChanged(Maze m, int cell, Direction d);
+}
@@ -1,84 +1,167 @@
 package maze.core;
-import java.util.*;
 
-import search.core.BestFirstSearcher;
+import search.core.Searcher;
 
+// A path through a maze, kept as its start cell and one Direction per
+// step, packed two bits to a step and 32 steps to a long.  The position
+// at the start of every long is kept as well, so getNth() walks at most
+// 31 steps.  A million-step path takes about 500 kilobytes, and
+// solvesMaze() checks it against the maze's walls without allocating
+// when the maze has at most 64 treasures.
 public class MazePath {
-    private ArrayList<MazeCell> path;
-    private Set<MazeCell> included;
-    
+    private final static int STEPS_PER_WORD = 32;
+
+    private int xStart, yStart, xEnd, yEnd;
+    private int numSteps;
+    private long[] steps;
+    private int[] wordX, wordY;
+
     public MazePath(int xStart, int yStart) {
-        path = new ArrayList<MazeCell>();
-        included = new HashSet<MazeCell>();
-        append(new MazeCell(xStart, yStart));
+        this.xStart = this.xEnd = xStart;
+        this.yStart = this.yEnd = yStart;
+        numSteps = 0;
+        steps = new long[1];
+        wordX = new int[] {xStart};
+        wordY = new int[] {yStart};
     }
-    
-    public MazePath(BestFirstSearcher<MazeExplorer> searchResult, Maze m) {
+
+    public MazePath(Searcher<MazeExplorer> searchResult, Maze m) {
     	this(m.getStart().X(), m.getStart().Y());
     	for (int i = 0; i < searchResult.numSteps(); ++i) {
     		MazeExplorer me = searchResult.get(i);
-    		append(new MazeCell(me.getLocation()));
+    		if (me.getGraph() != null && i > 0) {
+    			me.getGraph().appendCorridor(this, searchResult.get(i - 1).getCell(), me.getCell());
+    		} else {
+    			append(me.getLocation());
+    		}
     	}
     }
-    
-    public MazeCell getStart() {return path.get(0);}
-    public MazeCell getEnd() {return path.get(path.size() - 1);}
-    public int getLength() {return path.size();}
+
+    public MazeCell getStart() {return new MazeCell(xStart, yStart);}
+    public MazeCell getEnd() {return new MazeCell(xEnd, yEnd);}
+    public int getLength() {return numSteps + 1;}
 
     // Pre: 0 <= n < getLength()
     // Post: Returns nth point in the path
-    public MazeCell getNth(int n) {return path.get(n);}
-    
+    public MazeCell getNth(int n) {
+        int word = n / STEPS_PER_WORD;
+        int x = wordX[word], y = wordY[word];
+        for (int i = word * STEPS_PER_WORD; i < n; ++i) {
+            Direction d = getStep(i);
+            x += d.dx();
+            y += d.dy();
+        }
+        return new MazeCell(x, y);
+    }
+
+    // Pre: 0 <= n < getLength() - 1
+    // Post: Returns the direction of the step from getNth(n)
+    public Direction getStep(int n) {
+        return Direction.ALL[(int)(steps[n / STEPS_PER_WORD] >>> (2 * (n % STEPS_PER_WORD))) & 3];
+    }
+
+    // Post: Walks the whole path, so takes time proportional to its length
     public boolean hasVisited(MazeCell p) {
-        return included.contains(p);
+        int x = xStart, y = yStart;
+        for (int i = 0; ; ++i) {
+            if (x == p.X() && y == p.Y()) {return true;}
+            if (i == numSteps) {return false;}
+            Direction d = getStep(i);
+            x += d.dx();
+            y += d.dy();
+        }
     }
-    
+
+    // Post: Extends the path to next if next is a neighbor of its end;
+    //       otherwise leaves it unchanged
     public void append(MazeCell next) {
-        if (path.isEmpty() || next.isNeighbor(getEnd())) {
-            path.add(next);
-            included.add(next);
+        for (Direction d: Direction.ALL) {
+            if (next.X() == xEnd + d.dx() && next.Y() == yEnd + d.dy()) {
+                append(d);
+                return;
+            }
+        }
+    }
+
+    // Post: Extends the path one step in direction d
+    public void append(Direction d) {
+        int word = numSteps / STEPS_PER_WORD;
+        steps[word] |= (long)d.ordinal() << (2 * (numSteps % STEPS_PER_WORD));
+        xEnd += d.dx();
+        yEnd += d.dy();
+        numSteps++;
+        if (numSteps % STEPS_PER_WORD == 0) {
+            if (word + 1 == steps.length) {
+                int capacity = 2 * steps.length;
+                steps = java.util.Arrays.copyOf(steps, capacity);
+                wordX = java.util.Arrays.copyOf(wordX, capacity);
+                wordY = java.util.Arrays.copyOf(wordY, capacity);
+            }
+            wordX[word + 1] = xEnd;
+            wordY[word + 1] = yEnd;
         }
     }
-    
+
     public boolean solvesMaze(Maze target) {
-        if (!getStart().equals(target.getStart()) || !getEnd().equals(target.getEnd())) {
+        MazeCell start = target.getStart(), end = target.getEnd();
+        if (start == null || end == null || start.X() != xStart || start.Y() != yStart
+                || end.X() != xEnd || end.Y() != yEnd) {
             return false;
-
         }
-        
-        Set<MazeCell> treasureFound = new HashSet<MazeCell>();
-        for (int f = 0; f < path.size() - 1; ++f) {
-            MazeCell c = path.get(f);
-            MazeCell n = path.get(f+1);
-            if (!c.isNeighbor(n) || target.blocked(c, n)) {
-                return false;
+
+        int numTreasures = target.numTreasures();
+        long found = 0;
+        long[] wideFound = numTreasures > 64 ? new long[(numTreasures + 63) / 64] : null;
+        int x = xStart, y = yStart;
+        for (int i = 0; ; ++i) {
+            int t = numTreasures == 0 ? -1 : target.treasureNumber(target.cellIndex(x, y));
+            if (t >= 0) {
+                if (wideFound == null) {
+                    found |= 1L << t;
+                } else {
+                    wideFound[t >> 6] |= 1L << t;
+                }
             }
-            if (target.isTreasure(c)) {treasureFound.add(c);}
-        }
-        for (MazeCell trs: target.getTreasures()) {
-            if (!treasureFound.contains(trs)) {
+            if (i == numSteps) {break;}
+            Direction d = getStep(i);
+            if (target.blocked(x, y, d) || !target.within(x + d.dx(), y + d.dy())) {
                 return false;
             }
+            x += d.dx();
+            y += d.dy();
         }
-        return true;
+
+        if (wideFound == null) {
+            return Long.bitCount(found) == numTreasures;
+        }
+        int count = 0;
+        for (long word: wideFound) {
+            count += Long.bitCount(word);
+        }
+        return count == numTreasures;
     }
-    
+
     public String toString() {
         StringBuilder s = new StringBuilder();
-        for (MazeCell p: path) {
-            s.append(p);
+        int x = xStart, y = yStart;
+        for (int i = 0; ; ++i) {
+            s.append("(").append(x).append(", ").append(y).append(")");
+            if (i == numSteps) {break;}
+            Direction d = getStep(i);
+            x += d.dx();
+            y += d.dy();
         }
         return s.toString();
     }
-    
+
     public boolean equals(Object obj) {
         if (obj instanceof MazePath) {
             MazePath other = (MazePath)obj;
-            if (getLength() != other.getLength()) {
+            if (xStart != other.xStart || yStart != other.yStart || numSteps != other.numSteps) {
                 return false;
             }
-            for (int i = 0; i < getLength(); ++i) {
-                if (!other.path.get(i).equals(path.get(i))) {
+            for (int w = 0; w * STEPS_PER_WORD < numSteps; ++w) {
+                if (steps[w] != other.steps[w]) {
                     return false;
                 }
             }
@@ -87,6 +170,12 @@ public class MazePath {
             return false;
         }
     }
-    
-    public int hashCode() {return toString().hashCode();}
+
+    public int hashCode() {
+        int hash = 31 * (31 * xStart + yStart) + numSteps;
+        for (int w = 0; w * STEPS_PER_WORD < numSteps; ++w) {
+            hash = 31 * hash + Long.hashCode(steps[w]);
+        }
+        return hash;
+    }
 }
@@ -0,0 +1,126 @@
+package maze.core;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import maze.heuristics.Landmark;
+import search.core.BestFirstSearcher;
+
+// Answers many start-to-goal queries against one maze from several
+// threads at once.  The service works on a snapshot: a read-only copy of
+// the maze's packed walls, taken once, so later changes to the original
+// maze do not reach queries in flight.  The landmark tables of the
+// snapshot are built up front and shared by every query, each of which
+// is an A* search with the Landmark heuristic on the given executor.
+// Treasures play no part.
+public class MazeQueryService implements AutoCloseable {
+    private Maze snapshot;
+    private Landmark heuristic;
+    private ExecutorService executor;
+    private boolean ownsExecutor;
+    private LongAdder numQueries, totalNanos;
+
+    // The answer to one query, and how long it took
+    public static class Result {
+        private MazePath path;
+        private long queuedNanos, solveNanos;
+        private long numExpanded;
+
+        private Result(MazePath path, long queuedNanos, long solveNanos, long numExpanded) {
+            this.path = path;
+            this.queuedNanos = queuedNanos;
+            this.solveNanos = solveNanos;
+            this.numExpanded = numExpanded;
+        }
+
+        // Post: Returns a shortest path, or null if the goal cannot be
+        //       reached
+        public MazePath getPath() {return path;}
+
+        // Post: Returns the time from submission until the search began
+        public long getQueuedNanos() {return queuedNanos;}
+
+        public long getSolveNanos() {return solveNanos;}
+
+        public long getLatencyNanos() {return queuedNanos + solveNanos;}
+
+        public long getNumExpanded() {return numExpanded;}
+    }
+
+    // Post: Serves queries on m's current walls with one thread per
+    //       processor; close() stops those threads
+    public MazeQueryService(Maze m) {
+        this(m, Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+        ownsExecutor = true;
+    }
+
+    // Post: Serves queries on m's current walls with executor, which
+    //       close() leaves running
+    public MazeQueryService(Maze m, ExecutorService executor) {
+        ByteBuffer walls = ByteBuffer.allocate(Maze.wallBytes(m.getXSize(), m.getYSize()));
+        walls.put(m.getWallBytes());
+        walls.clear();
+        snapshot = new Maze(m.getXSize(), m.getYSize(), walls.asReadOnlyBuffer());
+        heuristic = new Landmark(MazeLandmarks.select(snapshot, MazeLandmarks.DEFAULT_LANDMARKS));
+        this.executor = executor;
+        numQueries = new LongAdder();
+        totalNanos = new LongAdder();
+    }
+
+    // Post: Returns the snapshot queries run on; it cannot be changed
+    public Maze getMaze() {return snapshot;}
+
+    // Post: Starts a search from start to goal
+    public CompletableFuture<Result> submit(MazeCell start, MazeCell goal) {
+        long submitted = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> solve(start, goal, submitted), executor);
+    }
+
+    // Pre: starts.size() == goals.size()
+    // Post: Answers every query, in the order given, waiting for all
+    public List<Result> solveAll(List<MazeCell> starts, List<MazeCell> goals) {
+        List<CompletableFuture<Result>> pending = new ArrayList<CompletableFuture<Result>>(starts.size());
+        for (int i = 0; i < starts.size(); ++i) {
+            pending.add(submit(starts.get(i), goals.get(i)));
+        }
+        List<Result> results = new ArrayList<Result>(pending.size());
+        for (CompletableFuture<Result> p: pending) {
+            results.add(p.join());
+        }
+        return results;
+    }
+
+    public long getNumQueries() {return numQueries.sum();}
+
+    // Post: Returns the mean latency of the queries answered so far
+    public double getMeanLatencyMillis() {
+        long n = numQueries.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    private Result solve(MazeCell start, MazeCell goal, long submitted) {
+        long began = System.nanoTime();
+        BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<MazeExplorer>(heuristic);
+        searcher.solve(new MazeExplorer(snapshot, start), new MazeExplorer(snapshot, goal));
+        MazePath path = null;
+        if (searcher.success()) {
+            path = new MazePath(start.X(), start.Y());
+            for (int i = 1; i < searcher.numSteps(); ++i) {
+                path.append(searcher.get(i).getLocation());
+            }
+        }
+        long finished = System.nanoTime();
+        numQueries.increment();
+        totalNanos.add(finished - submitted);
+        return new Result(path, began - submitted, finished - began, searcher.getNumExpanded());
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+}
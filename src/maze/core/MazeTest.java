@@ -2,9 +2,21 @@ package maze.core;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import search.core.AnytimeSearcher;
+import search.core.BestFirstHeuristic;
 import search.core.BestFirstSearcher;
+import search.core.BidirectionalSearcher;
+import search.core.IDAStarSearcher;
+import search.core.ParallelBestFirstSearcher;
+import search.core.SearchListener;
+import search.core.SearchMetrics;
+import search.core.SearchStatus;
+import search.core.TieBreaker;
 
 public class MazeTest {
 	final static int NUM_TESTS = 100;
@@ -71,4 +83,849 @@ public class MazeTest {
 		}
 		assertTrue(totalBest < totalBreadth);
 	}
+	
+	@Test
+	public void testTieBreakers() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.5);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			BestFirstSearcher<MazeExplorer> breadthFirst = new BestFirstSearcher<>(new maze.heuristics.BreadthFirst());
+			breadthFirst.solve(startNode, endNode);
+			for (TieBreaker tb: TieBreaker.values()) {
+				BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<>(new maze.heuristics.Manhattan(), tb);
+				searcher.solve(startNode, endNode);
+				assertTrue(searcher.success());
+				assertEquals(breadthFirst.numSteps(), searcher.numSteps());
+				assertTrue(new MazePath(searcher, m).solvesMaze(m));
+			}
+		}
+	}
+	
+	@Test
+	public void testBucketsMatchHeap() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.5);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			for (TieBreaker tb: TieBreaker.values()) {
+				BestFirstSearcher<MazeExplorer> heap = new BestFirstSearcher<>(new maze.heuristics.Manhattan(), tb);
+				heap.setBucketsAllowed(false);
+				BestFirstSearcher<MazeExplorer> buckets = new BestFirstSearcher<>(new maze.heuristics.Manhattan(), tb);
+				assertTrue(buckets.usesBuckets());
+				heap.solve(startNode, endNode);
+				buckets.solve(startNode, endNode);
+				assertEquals(heap.getNumNodes(), buckets.getNumNodes());
+				assertEquals(heap.numSteps(), buckets.numSteps());
+			}
+		}
+	}
+	
+	@Test
+	public void testInconsistentHeuristic() {
+		BestFirstHeuristic<MazeExplorer> evenOnly = (n, goal) -> 
+			(n.getLocation().X() + n.getLocation().Y()) % 2 == 0 ? n.getLocation().getManhattanDist(goal.getLocation()) : 0;
+		int reopened = 0, weightedReopened = 0;
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.3, i);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			BestFirstSearcher<MazeExplorer> breadthFirst = new BestFirstSearcher<>(new maze.heuristics.BreadthFirst());
+			BestFirstSearcher<MazeExplorer> aStar = new BestFirstSearcher<>(evenOnly);
+			BestFirstSearcher<MazeExplorer> consistent = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			BestFirstSearcher<MazeExplorer> weighted = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			weighted.setWeight(3);
+			breadthFirst.solve(startNode, endNode);
+			aStar.solve(startNode, endNode);
+			consistent.solve(startNode, endNode);
+			weighted.solve(startNode, endNode);
+			assertTrue(aStar.success());
+			assertEquals(breadthFirst.numSteps(), aStar.numSteps());
+			assertEquals(breadthFirst.numSteps(), consistent.numSteps());
+			assertEquals(0, consistent.getNumReopened());
+			assertTrue(weighted.success());
+			reopened += aStar.getNumReopened();
+			weightedReopened += weighted.getNumReopened();
+		}
+		assertTrue(reopened > 0);
+		assertTrue(weightedReopened > 0);
+	}
+	
+	@Test
+	public void testIDAStar() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.7);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			BestFirstSearcher<MazeExplorer> aStar = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			aStar.solve(startNode, endNode);
+			for (int tableSize: new int[]{0, 64}) {
+				IDAStarSearcher<MazeExplorer> idaStar = new IDAStarSearcher<>(new maze.heuristics.Manhattan(), tableSize);
+				idaStar.solve(startNode, endNode);
+				assertTrue(idaStar.success());
+				assertEquals(aStar.numSteps(), idaStar.numSteps());
+				assertTrue(new MazePath(idaStar, m).solvesMaze(m));
+			}
+		}
+	}
+	
+	@Test
+	public void testParallel() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.7);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			BestFirstSearcher<MazeExplorer> aStar = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			aStar.solve(startNode, endNode);
+			for (int threads = 1; threads <= 4; threads *= 2) {
+				ParallelBestFirstSearcher<MazeExplorer> parallel = new ParallelBestFirstSearcher<>(new maze.heuristics.Manhattan(), threads);
+				parallel.solve(startNode, endNode);
+				assertTrue(parallel.success());
+				assertEquals(aStar.numSteps(), parallel.numSteps());
+				assertTrue(new MazePath(parallel, m).solvesMaze(m));
+			}
+		}
+	}
+	
+	@Test
+	public void testBidirectional() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.7);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			BestFirstSearcher<MazeExplorer> aStar = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			aStar.solve(startNode, endNode);
+			BidirectionalSearcher<MazeExplorer> bidirectional = new BidirectionalSearcher<>(new maze.heuristics.Manhattan());
+			bidirectional.solve(startNode, endNode);
+			assertTrue(bidirectional.success());
+			assertEquals(aStar.numSteps(), bidirectional.numSteps());
+			assertTrue(new MazePath(bidirectional, m).solvesMaze(m));
+			assertTrue(bidirectional.getForwardExpansions() > 0 && bidirectional.getBackwardExpansions() > 0);
+		}
+	}
+	
+	@Test
+	public void testAnytime() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.3);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			BestFirstSearcher<MazeExplorer> aStar = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			aStar.solve(startNode, endNode);
+			AnytimeSearcher<MazeExplorer> anytime = new AnytimeSearcher<>(new maze.heuristics.Manhattan(), 3.0, 0.5);
+			ArrayList<Integer> lengths = new ArrayList<>();
+			anytime.addListener((path, bound) -> lengths.add(path.size()));
+			anytime.solve(startNode, endNode);
+			assertTrue(anytime.success());
+			assertEquals(aStar.numSteps(), anytime.numSteps());
+			assertEquals(1.0, anytime.getSuboptimalityBound(), 0.0);
+			assertTrue(new MazePath(anytime, m).solvesMaze(m));
+			for (int j = 1; j < lengths.size(); ++j) {
+				assertTrue(lengths.get(j) < lengths.get(j - 1));
+			}
+		}
+	}
+
+	@Test
+	public void testBudgets() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 1);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			searcher.solve(startNode, endNode);
+			assertEquals(SearchStatus.SOLVED, searcher.getStatus());
+			assertEquals(endNode.getLocation(), searcher.getBestPartial().getLocation());
+			
+			searcher.setNodeLimit(3);
+			searcher.solve(startNode, endNode);
+			assertFalse(searcher.success());
+			assertEquals(SearchStatus.BUDGET_EXCEEDED, searcher.getStatus());
+			assertEquals(3, searcher.getNumExpanded());
+			List<MazeExplorer> partial = searcher.getBestPartialPath();
+			assertEquals(startNode, partial.get(0));
+			assertEquals(searcher.getBestPartial(), partial.get(partial.size() - 1));
+			
+			searcher.setNodeLimit(0);
+			searcher.setMemoryLimit(BestFirstSearcher.BYTES_PER_NODE);
+			searcher.solve(startNode, endNode);
+			assertEquals(SearchStatus.BUDGET_EXCEEDED, searcher.getStatus());
+			
+			searcher.setMemoryLimit(0);
+			searcher.cancel();
+			searcher.solve(startNode, endNode);
+			assertEquals(SearchStatus.SOLVED, searcher.getStatus());
+			
+			boolean[] cancelOnce = {true};
+			searcher.addListener(new SearchListener<MazeExplorer>() {
+				public void nodeExpanded(MazeExplorer obj, int g, int h) {
+					if (cancelOnce[0]) {
+						cancelOnce[0] = false;
+						searcher.cancel();
+					}
+				}
+			});
+			searcher.solve(startNode, endNode);
+			assertEquals(SearchStatus.CANCELLED, searcher.getStatus());
+			assertEquals(1, searcher.getNumExpanded());
+			searcher.solve(startNode, endNode);
+			assertEquals(SearchStatus.SOLVED, searcher.getStatus());
+		}
+	}
+
+	@Test
+	public void testMetrics() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.5);
+			BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			searcher.setTimed(true);
+			int[] expanded = new int[1];
+			ArrayList<SearchMetrics> finished = new ArrayList<>();
+			searcher.addListener(new SearchListener<MazeExplorer>() {
+				public void nodeExpanded(MazeExplorer obj, int g, int h) {expanded[0]++;}
+				public void searchFinished(SearchStatus status, SearchMetrics metrics) {finished.add(metrics);}
+			});
+			searcher.solve(new MazeExplorer(m, m.getStart()), new MazeExplorer(m, m.getEnd()));
+			assertTrue(searcher.success());
+			assertEquals(1, finished.size());
+			SearchMetrics metrics = finished.get(0);
+			assertSame(metrics, searcher.getMetrics());
+			assertEquals(expanded[0], metrics.getExpansions());
+			assertEquals(searcher.getNumExpanded(), metrics.getExpansions());
+			assertEquals(searcher.getNumNodes(), metrics.getGenerations());
+			assertEquals(searcher.getNumDuplicates(), metrics.getDuplicates());
+			assertTrue(metrics.getOpenPeak() > 0);
+			assertTrue(metrics.getHeuristicNanos() > 0);
+			assertTrue(metrics.getSuccessorNanos() > 0);
+			assertEquals(searcher.numSteps() - 1, metrics.getF(), 0.0);
+			for (int j = 1; j < metrics.getNumFSteps(); ++j) {
+				assertTrue(metrics.getFStepValue(j) > metrics.getFStepValue(j - 1));
+				assertTrue(metrics.getFStepTime(j) >= metrics.getFStepTime(j - 1));
+			}
+		}
+	}
+
+	@Test
+	public void testWallBits() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH + i % 2, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(m.getXMax(), m.getYMax()), 0, 0.5);
+			int[] open = new int[4];
+			for (int cell = 0; cell < m.numCells(); ++cell) {
+				MazeCell c = m.cellAt(cell);
+				assertEquals(cell, m.cellIndex(c));
+				int n = m.openNeighbors(cell, open);
+				int expected = 0;
+				for (Direction d: Direction.values()) {
+					assertEquals(m.blocked(c, d), m.blocked(cell, d));
+					int next = m.neighbor(cell, d);
+					if (next < 0) {
+						assertFalse(m.within(d.successor(c)));
+						assertTrue(m.blocked(cell, d));
+					} else {
+						assertEquals(d.successor(c), m.cellAt(next));
+						assertEquals(m.blocked(cell, d), m.blocked(next, d.opposite()));
+						if (!m.blocked(cell, d)) {
+							assertEquals(next, open[expected++]);
+						}
+					}
+				}
+				assertEquals(expected, n);
+			}
+		}
+	}
+
+	@Test
+	public void testExplorerEncoding() {
+		for (int numTreasures: new int[]{3, 100}) {
+			Maze m = new Maze(WIDTH * 2, HEIGHT * 2);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(m.getXMax(), m.getYMax()), numTreasures, 0.5);
+			MazeExplorer all = new MazeExplorer(m, m.getEnd());
+			all.addTreasures(m.getTreasures());
+			assertEquals(m.getTreasures().size(), all.numTreasuresFound());
+			assertEquals(new java.util.TreeSet<>(m.getTreasures()), all.getTreasureFound());
+			for (MazeCell t: m.getTreasures()) {
+				int tCell = m.cellIndex(t);
+				for (Direction d: Direction.values()) {
+					int from = m.neighbor(tCell, d);
+					if (from >= 0 && !m.blocked(tCell, d)) {
+						MazeExplorer before = new MazeExplorer(m, from);
+						for (MazeExplorer next: before.getSuccessors()) {
+							assertEquals(m.treasureNumber(next.getCell()) >= 0 ? 1 : 0, next.numTreasuresFound());
+							if (next.getCell() == tCell) {
+								MazeExplorer expected = new MazeExplorer(m, t);
+								expected.addTreasures(java.util.Collections.singleton(t));
+								assertEquals(expected, next);
+								assertEquals(expected.hashCode(), next.hashCode());
+								assertNotEquals(new MazeExplorer(m, t), next);
+							}
+						}
+						assertEquals(0, before.numTreasuresFound());
+					}
+				}
+			}
+		}
+	}
+
+	// Post: Returns the number of open walls in m, after checking that
+	//       every cell can be reached from the start
+	private static int countPassages(Maze m) {
+		boolean[] seen = new boolean[m.numCells()];
+		int[] queue = new int[m.numCells()];
+		int[] open = new int[4];
+		int head = 0, tail = 0, passages = 0;
+		queue[tail++] = m.cellIndex(m.getStart());
+		seen[queue[0]] = true;
+		while (head < tail) {
+			int n = m.openNeighbors(queue[head++], open);
+			passages += n;
+			for (int i = 0; i < n; ++i) {
+				if (!seen[open[i]]) {
+					seen[open[i]] = true;
+					queue[tail++] = open[i];
+				}
+			}
+		}
+		assertEquals(m.numCells(), tail);
+		return passages / 2;
+	}
+
+	@Test
+	public void testSeededGenerator() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m1 = new Maze(WIDTH, HEIGHT), m2 = new Maze(WIDTH, HEIGHT), m3 = new Maze(WIDTH, HEIGHT);
+			MazeCell start = new MazeCell(0, 0), end = new MazeCell(WIDTH - 1, HEIGHT - 1);
+			m1.makeMaze(start, end, 3, 1, i);
+			m2.makeMaze(start, end, 3, 1, i);
+			m3.makeMaze(start, end, 3, 1, i + NUM_TESTS);
+			assertEquals(m1.toString(), m2.toString());
+			assertNotEquals(m1.toString(), m3.toString());
+			assertEquals(m1.numCells() - 1, countPassages(m1));
+			assertEquals(3, m1.numTreasures());
+			
+			Maze loopy = new Maze(WIDTH, HEIGHT);
+			loopy.makeMaze(start, end, 0, 0.5, i);
+			assertTrue(countPassages(loopy) > loopy.numCells() - 1);
+		}
+	}
+
+	@Test
+	public void testParseRoundTrip() throws java.io.IOException {
+		Maze m = new Maze(WIDTH, HEIGHT);
+		m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 4, 0.7, 42);
+		Maze copy = Maze.parse(new java.io.StringReader(m.toString()));
+		assertEquals(m.toString(), copy.toString());
+		assertEquals(m.getStart(), copy.getStart());
+		assertEquals(m.getEnd(), copy.getEnd());
+		assertEquals(m.getTreasures(), copy.getTreasures());
+	}
+
+	@Test
+	public void testEller() throws java.io.IOException {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			java.io.StringWriter perfect = new java.io.StringWriter(), again = new java.io.StringWriter();
+			MazeCell start = new MazeCell(0, 0), end = new MazeCell(WIDTH - 1, HEIGHT - 1);
+			new MazeGenerator(i).writeEller(perfect, WIDTH, HEIGHT, start, end, 2, 1);
+			new MazeGenerator(i).writeEller(again, WIDTH, HEIGHT, start, end, 2, 1);
+			assertEquals(perfect.toString(), again.toString());
+			Maze m = Maze.parse(new java.io.StringReader(perfect.toString()));
+			assertEquals(perfect.toString(), m.toString());
+			assertEquals(start, m.getStart());
+			assertEquals(end, m.getEnd());
+			assertEquals(2, m.numTreasures());
+			assertEquals(m.numCells() - 1, countPassages(m));
+			
+			java.io.StringWriter loopy = new java.io.StringWriter();
+			new MazeGenerator(i).writeEller(loopy, WIDTH, HEIGHT, start, end, 0, 0.5);
+			m = Maze.parse(new java.io.StringReader(loopy.toString()));
+			assertTrue(countPassages(m) > m.numCells() - 1);
+			
+			MazeExplorer goal = new MazeExplorer(m, m.getEnd());
+			BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			searcher.solve(new MazeExplorer(m, m.getStart()), goal);
+			assertTrue(new MazePath(searcher, m).solvesMaze(m));
+		}
+	}
+
+	@Test
+	public void testParallelGenerator() {
+		for (int i = 0; i < NUM_TESTS / 10; ++i) {
+			MazeCell start = new MazeCell(0, 0), end = new MazeCell(WIDTH * 7 - 1, HEIGHT * 5 - 1);
+			MazeGenerator gen = new MazeGenerator(i);
+			gen.setTileSize(8);
+			Maze one = new Maze(WIDTH * 7, HEIGHT * 5), four = new Maze(WIDTH * 7, HEIGHT * 5);
+			gen.carveParallel(one, start, end, 5, 1, 1);
+			gen.carveParallel(four, start, end, 5, 1, 4);
+			assertEquals(one.toString(), four.toString());
+			assertEquals(one.numCells() - 1, countPassages(one));
+			assertEquals(5, one.numTreasures());
+			
+			Maze loopy = new Maze(WIDTH * 7, HEIGHT * 5), again = new Maze(WIDTH * 7, HEIGHT * 5);
+			gen.carveParallel(loopy, start, end, 0, 0.8, 3);
+			gen.carveParallel(again, start, end, 0, 0.8, 2);
+			assertEquals(loopy.toString(), again.toString());
+			assertTrue(countPassages(loopy) > loopy.numCells() - 1);
+		}
+	}
+
+	@Test
+	public void testMazeFile() throws java.io.IOException {
+		java.io.File f = java.io.File.createTempFile("maze", ".bin");
+		f.deleteOnExit();
+		for (int i = 0; i < NUM_TESTS / 10; ++i) {
+			Maze m = new Maze(WIDTH + i, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(m.getXMax(), m.getYMax()), 3, 0.6, i);
+			MazeFile.write(m, f);
+			Maze mapped = MazeFile.map(f);
+			assertEquals(m.toString(), mapped.toString());
+			assertEquals(m.getStart(), mapped.getStart());
+			assertEquals(m.getEnd(), mapped.getEnd());
+			assertEquals(m.getTreasures(), mapped.getTreasures());
+			
+			MazeExplorer goal = new MazeExplorer(mapped, mapped.getEnd());
+			goal.addTreasures(mapped.getTreasures());
+			BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			searcher.solve(new MazeExplorer(mapped, mapped.getStart()), goal);
+			assertTrue(new MazePath(searcher, mapped).solvesMaze(mapped));
+		}
+		
+		// Moves the start x just past the right edge of the last maze
+		try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(f, "rw")) {
+			raf.seek(8);
+			int xSize = raf.readInt();
+			raf.seek(16);
+			raf.writeInt(xSize);
+		}
+		try {
+			MazeFile.map(f);
+			fail("a start outside the maze was accepted");
+		} catch (java.io.IOException expected) {}
+	}
+
+	@Test
+	public void testMazeDistanceTreasure() {
+		int totalExact = 0, totalBreadth = 0;
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 4, 0.7, i);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			endNode.addTreasures(m.getTreasures());
+			BestFirstSearcher<MazeExplorer> breadthFirst = new BestFirstSearcher<>(new maze.heuristics.BreadthFirst());
+			maze.heuristics.MazeDistanceTreasure h = new maze.heuristics.MazeDistanceTreasure();
+			BestFirstSearcher<MazeExplorer> exact = new BestFirstSearcher<>(h);
+			breadthFirst.solve(startNode, endNode);
+			exact.solve(startNode, endNode);
+			assertTrue(exact.success());
+			assertEquals(breadthFirst.numSteps(), exact.numSteps());
+			assertTrue(new MazePath(exact, m).solvesMaze(m));
+			assertEquals(0, exact.getNumReopened());
+			for (int step = 0; step < exact.numSteps(); ++step) {
+				assertTrue(h.getDistance(exact.get(step), endNode) <= exact.numSteps() - 1 - step);
+			}
+			totalExact += exact.getNumNodes();
+			totalBreadth += breadthFirst.getNumNodes();
+		}
+		assertTrue(totalExact < totalBreadth / 2);
+	}
+
+	@Test
+	public void testMazeDistanceTreasureAfterSetWall() {
+		maze.heuristics.MazeDistanceTreasure h = new maze.heuristics.MazeDistanceTreasure();
+		java.util.SplittableRandom random = new java.util.SplittableRandom(17);
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 3, 1, i);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			endNode.addTreasures(m.getTreasures());
+			BestFirstSearcher<MazeExplorer> exact = new BestFirstSearcher<>(h);
+			exact.solve(startNode, endNode);
+			assertTrue(exact.success());
+			
+			// Shortcuts make the old distances overestimates
+			for (int k = 0; k < 10; ++k) {
+				m.setWall(random.nextInt(WIDTH - 1), random.nextInt(HEIGHT), Direction.E, false);
+			}
+			BestFirstSearcher<MazeExplorer> breadthFirst = new BestFirstSearcher<>(new maze.heuristics.BreadthFirst());
+			breadthFirst.solve(startNode, endNode);
+			exact.solve(startNode, endNode);
+			assertEquals(breadthFirst.numSteps(), exact.numSteps());
+		}
+	}
+
+	@Test
+	public void testTreasureTour() {
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), i % 5, 0.6, i);
+			TreasureTourSolver tour = new TreasureTourSolver(m);
+			assertTrue(tour.solve());
+			MazePath path = tour.getPath();
+			assertTrue(path.solvesMaze(m));
+			assertEquals(tour.getLength() + 1, path.getLength());
+			
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			endNode.addTreasures(m.getTreasures());
+			BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<>(new maze.heuristics.MazeDistanceTreasure());
+			searcher.solve(new MazeExplorer(m, m.getStart()), endNode);
+			assertEquals(searcher.numSteps() - 1, tour.getLength());
+		}
+		
+		Maze big = new Maze(WIDTH * 10, HEIGHT * 10);
+		big.makeMaze(new MazeCell(0, 0), new MazeCell(big.getXMax(), big.getYMax()), 16, 0.8, 17);
+		TreasureTourSolver tour = new TreasureTourSolver(big);
+		assertTrue(tour.solve());
+		assertTrue(tour.getPath().solvesMaze(big));
+	}
+
+	@Test
+	public void testJunctionGraph() {
+		int totalGraph = 0, totalCells = 0;
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), i % 5, 0.6, i);
+			JunctionGraph g = new JunctionGraph(m);
+			assertTrue(g.numNodes() + g.numPruned() <= m.numCells());
+			
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			endNode.addTreasures(m.getTreasures());
+			BestFirstSearcher<MazeExplorer> cells = new BestFirstSearcher<>(new maze.heuristics.MazeDistanceTreasure());
+			cells.solve(new MazeExplorer(m, m.getStart()), endNode);
+			BestFirstSearcher<MazeExplorer> contracted = new BestFirstSearcher<>(new maze.heuristics.MazeDistanceTreasure());
+			contracted.solve(new MazeExplorer(g, m.getStart()), endNode);
+			assertTrue(contracted.success());
+			
+			MazePath path = new MazePath(contracted, m);
+			assertTrue(path.solvesMaze(m));
+			assertEquals(cells.numSteps(), path.getLength());
+			totalGraph += contracted.getNumNodes();
+			totalCells += cells.getNumNodes();
+		}
+		assertTrue(totalGraph < totalCells);
+	}
+
+	@Test
+	public void testJunctionGraphCosts() {
+		for (int i = 0; i < NUM_TESTS / 5; ++i) {
+			Maze m = new Maze(WIDTH, HEIGHT);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.6, i);
+			JunctionGraph g = new JunctionGraph(m);
+			int shortest = MazeDistances.bfs(m, m.cellIndex(m.getStart()))[m.cellIndex(m.getEnd())] + 1;
+			BestFirstHeuristic<MazeExplorer> h = new maze.heuristics.Manhattan();
+			List<search.core.Searcher<MazeExplorer>> searchers = new ArrayList<>();
+			searchers.add(new BestFirstSearcher<>(h));
+			searchers.add(new AnytimeSearcher<>(h, 3.0, 0.5));
+			searchers.add(new BidirectionalSearcher<>(h));
+			searchers.add(new IDAStarSearcher<>(h));
+			searchers.add(new ParallelBestFirstSearcher<>(h, 2));
+			for (search.core.Searcher<MazeExplorer> searcher: searchers) {
+				searcher.solve(new MazeExplorer(g, m.getStart()), new MazeExplorer(g, m.getEnd()));
+				assertTrue(searcher.success());
+				MazePath path = new MazePath(searcher, m);
+				assertTrue(path.solvesMaze(m));
+				assertEquals(searcher.getClass().getSimpleName(), shortest, path.getLength());
+			}
+		}
+	}
+
+	@Test
+	public void testHierarchicalMaze() {
+		Maze m = new Maze(WIDTH * 5, HEIGHT * 4);
+		m.makeMaze(new MazeCell(0, 0), new MazeCell(m.getXMax(), m.getYMax()), 0, 0.7, 3);
+		HierarchicalMaze h = new HierarchicalMaze(m, 8);
+		java.util.SplittableRandom random = new java.util.SplittableRandom(4);
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			if (i == NUM_TESTS / 2) {
+				for (int k = 0; k < 20; ++k) {
+					int x = random.nextInt(m.getXSize() - 1), y = random.nextInt(m.getYSize());
+					m.knockDownBetween(x, y, Direction.E);
+					h.update(x, y);
+				}
+			}
+			MazeCell start = new MazeCell(random.nextInt(m.getXSize()), random.nextInt(m.getYSize()));
+			MazeCell goal = new MazeCell(random.nextInt(m.getXSize()), random.nextInt(m.getYSize()));
+			HierarchicalMaze.Route route = h.findRoute(start, goal);
+			assertEquals(MazeDistances.bfs(m, m.cellIndex(start))[m.cellIndex(goal)], route.getLength());
+			MazePath path = route.toMazePath();
+			assertEquals(route.getLength() + 1, path.getLength());
+			assertEquals(start, path.getStart());
+			assertEquals(goal, path.getEnd());
+			for (int step = 0; step + 1 < path.getLength(); ++step) {
+				assertFalse(m.blocked(path.getNth(step), path.getNth(step + 1)));
+			}
+		}
+	}
+
+	@Test
+	public void testLandmarks() throws java.io.IOException {
+		int totalLandmark = 0, totalManhattan = 0;
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			Maze m = new Maze(WIDTH * 2, HEIGHT * 2);
+			m.makeMaze(new MazeCell(0, 0), new MazeCell(m.getXMax(), m.getYMax()), 0, 0.8, i);
+			MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+			MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+			BestFirstSearcher<MazeExplorer> manhattan = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+			BestFirstHeuristic<MazeExplorer> h = new maze.heuristics.Landmark();
+			BestFirstSearcher<MazeExplorer> landmark = new BestFirstSearcher<>(h);
+			manhattan.solve(startNode, endNode);
+			landmark.solve(startNode, endNode);
+			assertEquals(manhattan.numSteps(), landmark.numSteps());
+			int[] toEnd = MazeDistances.bfs(m, m.cellIndex(m.getEnd()));
+			for (int cell = 0; cell < m.numCells(); ++cell) {
+				assertTrue(h.getDistance(new MazeExplorer(m, cell), endNode) <= toEnd[cell]);
+			}
+			totalLandmark += landmark.getNumNodes();
+			totalManhattan += manhattan.getNumNodes();
+		}
+		assertTrue(totalLandmark < totalManhattan);
+		
+		java.io.File f = java.io.File.createTempFile("maze", ".bin");
+		f.deleteOnExit();
+		MazeLandmarks.fileFor(f).deleteOnExit();
+		Maze m = new Maze(WIDTH, HEIGHT);
+		m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.8, 5);
+		MazeLandmarks chosen = MazeLandmarks.load(m, f, 4);
+		MazeLandmarks saved = MazeLandmarks.read(m, MazeLandmarks.fileFor(f));
+		assertEquals(4, saved.numLandmarks());
+		for (int a = 0; a < m.numCells(); ++a) {
+			assertEquals(chosen.lowerBound(a, 0), saved.lowerBound(a, 0));
+		}
+		int wall = 0;
+		while (!m.blocked(wall, Direction.E) || m.xOf(wall) == m.getXMax()) {wall++;}
+		m.knockDownBetween(m.xOf(wall), m.yOf(wall), Direction.E);
+		try {
+			MazeLandmarks.read(m, MazeLandmarks.fileFor(f));
+			fail("landmarks of changed walls were read");
+		} catch (java.io.IOException expected) {}
+		MazeLandmarks reloaded = MazeLandmarks.load(m, f, 4);
+		assertTrue(reloaded != chosen);
+		assertSame(reloaded, MazeLandmarks.of(m));
+		
+		m.setWall(0, 0, Direction.E, !m.blocked(0, Direction.E));
+		assertTrue(reloaded.isStale());
+		assertFalse(MazeLandmarks.of(m).isStale());
+		assertSame(MazeLandmarks.of(m), MazeLandmarks.of(m));
+	}
+
+	@Test
+	public void testDStarLite() {
+		Maze m = new Maze(WIDTH * 3, HEIGHT * 2);
+		m.makeMaze(new MazeCell(0, 0), new MazeCell(m.getXMax(), m.getYMax()), 0, 0.8, 9);
+		int[] shared = MazeDistances.of(m).from(m.cellIndex(m.getEnd()));
+		DStarLite planner = new DStarLite(m, m.getStart(), m.getEnd());
+		assertTrue(planner.computePath());
+		int first = planner.getNumExpanded();
+		java.util.SplittableRandom random = new java.util.SplittableRandom(10);
+		int steps = 0, repairs = 0;
+		while (!planner.getStart().equals(m.getEnd())) {
+			for (int k = 0; k < 3; ++k) {
+				int x = random.nextInt(m.getXSize() - 1), y = random.nextInt(m.getYSize());
+				m.setWall(x, y, Direction.E, random.nextBoolean());
+			}
+			boolean reachable = planner.computePath();
+			repairs += planner.getNumExpanded();
+			int[] truth = MazeDistances.bfs(m, m.cellIndex(m.getEnd()));
+			int here = m.cellIndex(planner.getStart());
+			assertEquals(truth[here], planner.getDistance());
+			assertArrayEquals(truth, MazeDistances.of(m).from(m.cellIndex(m.getEnd())));
+			if (!reachable) {break;}
+			MazePath path = planner.getPath();
+			assertEquals(truth[here] + 1, path.getLength());
+			planner.moveTo(path.getNth(1));
+			steps++;
+		}
+		planner.detach();
+		assertTrue(steps > 0);
+		assertTrue(repairs < first * steps);
+		assertTrue(shared != MazeDistances.of(m).from(m.cellIndex(m.getEnd())));
+	}
+
+	@Test
+	public void testQueryService() {
+		Maze m = new Maze(WIDTH * 3, HEIGHT * 2);
+		m.makeMaze(new MazeCell(0, 0), new MazeCell(m.getXMax(), m.getYMax()), 0, 0.8, 11);
+		String before = m.toString();
+		java.util.SplittableRandom random = new java.util.SplittableRandom(12);
+		List<MazeCell> starts = new ArrayList<MazeCell>(), goals = new ArrayList<MazeCell>();
+		for (int i = 0; i < NUM_TESTS; ++i) {
+			starts.add(m.cellAt(random.nextInt(m.numCells())));
+			goals.add(m.cellAt(random.nextInt(m.numCells())));
+		}
+		try (MazeQueryService service = new MazeQueryService(m)) {
+			for (int x = 0; x < m.getXMax(); ++x) {
+				m.setWall(x, 0, Direction.E, false);
+			}
+			List<MazeQueryService.Result> results = service.solveAll(starts, goals);
+			assertEquals(NUM_TESTS, service.getNumQueries());
+			Maze original = Maze.parse(new java.io.StringReader(before));
+			for (int i = 0; i < NUM_TESTS; ++i) {
+				MazePath path = results.get(i).getPath();
+				assertEquals(MazeDistances.bfs(original, original.cellIndex(starts.get(i)))[original.cellIndex(goals.get(i))] + 1, 
+						path.getLength());
+				assertEquals(goals.get(i), path.getEnd());
+				assertTrue(results.get(i).getLatencyNanos() >= results.get(i).getSolveNanos());
+			}
+			try {
+				service.getMaze().setWall(0, 0, Direction.E, true);
+				fail("the snapshot was changed");
+			} catch (java.nio.ReadOnlyBufferException expected) {}
+		} catch (java.io.IOException e) {
+			fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testPackedPath() {
+		Maze m = new Maze(WIDTH * 4, HEIGHT * 4);
+		m.makeMaze(new MazeCell(0, 0), new MazeCell(m.getXMax(), m.getYMax()), 70, 0.7, 13);
+		MazePath path = new MazePath(m.getStart().X(), m.getStart().Y());
+		List<MazeCell> cells = new ArrayList<MazeCell>();
+		cells.add(m.getStart());
+		int here = m.cellIndex(m.getStart());
+		for (int n = 0; n <= m.numTreasures(); ++n) {
+			int there = n < m.numTreasures() ? m.treasureCell(n) : m.cellIndex(m.getEnd());
+			here = walkDown(m, path, cells, here, there);
+		}
+		assertTrue(path.getLength() > 100);
+		assertEquals(cells.size(), path.getLength());
+		assertTrue(path.solvesMaze(m));
+		
+		MazePath copy = new MazePath(m.getStart().X(), m.getStart().Y());
+		for (int i = 0; i < cells.size(); ++i) {
+			assertEquals(cells.get(i), path.getNth(i));
+			assertTrue(path.hasVisited(cells.get(i)));
+			copy.append(path.getNth(i));
+		}
+		assertEquals(path, copy);
+		assertEquals(path.hashCode(), copy.hashCode());
+		assertEquals(path.toString(), copy.toString());
+		
+		copy.append(new MazeCell(m.getXMax() - 5, 0));
+		assertEquals(path, copy);
+		MazeCell end = path.getEnd();
+		for (Direction d: Direction.ALL) {
+			if (m.within(end.X() + d.dx(), end.Y() + d.dy()) && m.blocked(end, d)) {
+				copy.append(d);
+				assertFalse(copy.solvesMaze(m));
+				assertFalse(path.equals(copy));
+				break;
+			}
+		}
+		
+		MazePath shortcut = new MazePath(m.getStart().X(), m.getStart().Y());
+		walkDown(m, shortcut, new ArrayList<MazeCell>(), m.cellIndex(m.getStart()), m.cellIndex(m.getEnd()));
+		assertFalse(shortcut.solvesMaze(m));
+	}
+	
+	// Post: Appends a shortest walk from cell from to cell to onto path
+	//       and cells, and returns to
+	private static int walkDown(Maze m, MazePath path, List<MazeCell> cells, int from, int to) {
+		int[] toThere = MazeDistances.bfs(m, to);
+		int[] open = new int[4];
+		while (from != to) {
+			int k = m.openNeighbors(from, open);
+			for (int i = 0; i < k; ++i) {
+				if (toThere[open[i]] == toThere[from] - 1) {
+					from = open[i];
+					break;
+				}
+			}
+			cells.add(m.cellAt(from));
+			path.append(m.cellAt(from));
+		}
+		return to;
+	}
+
+	@Test
+	public void testComponents() throws java.io.IOException {
+		Maze m = new Maze(WIDTH * 2, HEIGHT * 2);
+		m.makeMaze(new MazeCell(0, 0), new MazeCell(m.getXMax(), m.getYMax()), 2, 0.7, 14);
+		BestFirstSearcher<MazeExplorer> generated = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+		generated.solve(new MazeExplorer(m, m.getStart()), new MazeExplorer(m, m.getEnd()));
+		assertTrue(generated.success());
+		assertNull(m.components);
+		
+		Maze tiled = new Maze(WIDTH * 2, HEIGHT * 2);
+		MazeGenerator gen = new MazeGenerator(14);
+		gen.setTileSize(8);
+		gen.carveParallel(tiled, new MazeCell(0, 0), new MazeCell(tiled.getXMax(), tiled.getYMax()), 2, 0.7, 2);
+		generated.solve(new MazeExplorer(tiled, tiled.getStart()), new MazeExplorer(tiled, tiled.getEnd()));
+		assertTrue(generated.success());
+		assertNull(tiled.components);
+		
+		Maze parsed = Maze.parse(new java.io.StringReader(m.toString()));
+		generated.solve(new MazeExplorer(parsed, parsed.getStart()), new MazeExplorer(parsed, parsed.getEnd()));
+		assertTrue(generated.success());
+		assertNull(parsed.components);
+		parsed.setReachabilityCheck(true);
+		generated.solve(new MazeExplorer(parsed, parsed.getStart()), new MazeExplorer(parsed, parsed.getEnd()));
+		assertTrue(generated.success());
+		assertNotNull(parsed.components);
+		MazeComponents components = MazeComponents.of(m);
+		assertEquals(1, components.numComponents());
+		
+		java.util.SplittableRandom random = new java.util.SplittableRandom(15);
+		for (int k = 0; k < m.numCells(); ++k) {
+			int x = random.nextInt(m.getXSize() - 1), y = random.nextInt(m.getYSize());
+			m.setWall(x, y, Direction.E, random.nextInt(4) != 0);
+			if (k % 50 == 0) {
+				int source = random.nextInt(m.numCells());
+				int[] dist = MazeDistances.bfs(m, source);
+				for (int cell = 0; cell < m.numCells(); ++cell) {
+					assertEquals(dist[cell] != MazeDistances.UNREACHABLE, components.connected(source, cell));
+				}
+			}
+		}
+		
+		for (Direction d: Direction.ALL) {
+			if (m.neighbor(0, d) >= 0) {m.setWall(0, 0, d, true);}
+		}
+		MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
+		endNode.addTreasures(m.getTreasures());
+		BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<>(new maze.heuristics.Manhattan());
+		searcher.solve(new MazeExplorer(m, m.getStart()), endNode);
+		assertEquals(SearchStatus.EXHAUSTED, searcher.getStatus());
+		assertEquals(0, searcher.getNumExpanded());
+		
+		for (int x = 0; x < m.getXMax(); ++x) {
+			for (int y = 0; y < m.getYSize(); ++y) {
+				m.setWall(x, y, Direction.E, false);
+			}
+		}
+		assertEquals(1, components.numComponents());
+		searcher.solve(new MazeExplorer(m, m.getStart()), endNode);
+		assertTrue(new MazePath(searcher, m).solvesMaze(m));
+	}
+
+	@Test
+	public void testSharedTablesGoWithMaze() throws InterruptedException {
+		java.lang.ref.WeakReference<Maze> ref = shareTables();
+		for (int i = 0; i < 50 && ref.get() != null; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(ref.get());
+	}
+	
+	// Post: Builds every table of() shares for a new maze, and returns a
+	//       weak reference to that maze
+	private static java.lang.ref.WeakReference<Maze> shareTables() {
+		Maze m = new Maze(WIDTH, HEIGHT);
+		m.makeMaze(new MazeCell(0, 0), new MazeCell(WIDTH - 1, HEIGHT - 1), 0, 0.5, 16);
+		MazeDistances.of(m).from(m.cellIndex(m.getEnd()));
+		HierarchicalMaze.of(m);
+		MazeLandmarks.of(m);
+		MazeComponents.of(m);
+		return new java.lang.ref.WeakReference<Maze>(m);
+	}
 }
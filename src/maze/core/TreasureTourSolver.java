@@ -0,0 +1,194 @@
+package maze.core;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Finds a shortest route from the start through every treasure to the
+// end, without searching over (location, treasures collected) states.
+// True distances between the start and the treasures come from BFS
+// tables (MazeDistances), the order in which to visit the treasures from
+// the Held-Karp dynamic program over subsets, and the route itself from
+// walking each leg back down its BFS table.  The program fills in the
+// subsets of each size in parallel, since each one depends only on the
+// subsets one treasure smaller.  Time grows as k^2 2^k and memory as
+// k 2^k for k treasures, so it is limited to MAX_TREASURES; at that limit
+// the cost table alone is 20 2^20 ints, or 80 megabytes, and every
+// treasure past it would more than double that.
+public class TreasureTourSolver {
+    public final static int MAX_TREASURES = 20;
+    
+    private final static int INFINITE = Integer.MAX_VALUE;
+    
+    private Maze m;
+    private int k;
+    private int[] points;
+    private int[][] tables;
+    private int[][] legs;
+    private int[] costs;
+    private int[] order;
+    private int length;
+    
+    // Pre: m has a start and an end
+    public TreasureTourSolver(Maze m) {
+        if (m.numTreasures() > MAX_TREASURES) {
+            throw new IllegalArgumentException(m.numTreasures() + " treasures is more than " + MAX_TREASURES);
+        }
+        this.m = m;
+        k = m.numTreasures();
+        length = -1;
+    }
+    
+    // Post: Returns true if a route exists; if so, getPath() is a
+    //       shortest one
+    public boolean solve() {
+        // points[0..k-1] are the treasures, points[k] the start, and
+        // points[k + 1] the end
+        points = new int[k + 2];
+        for (int i = 0; i < k; ++i) {
+            points[i] = m.treasureCell(i);
+        }
+        points[k] = m.cellIndex(m.getStart());
+        points[k + 1] = m.cellIndex(m.getEnd());
+        MazeDistances distances = MazeDistances.of(m);
+        tables = new int[k + 1][];
+        legs = new int[k + 1][k + 2];
+        for (int i = 0; i <= k; ++i) {
+            tables[i] = distances.from(points[i]);
+            for (int j = 0; j < k + 2; ++j) {
+                int d = tables[i][points[j]];
+                legs[i][j] = d == MazeDistances.UNREACHABLE ? INFINITE : d;
+            }
+        }
+        
+        if (k == 0) {
+            order = new int[0];
+            length = legs[k][k + 1];
+        } else {
+            heldKarp();
+        }
+        return success();
+    }
+    
+    public boolean success() {return length >= 0 && length < INFINITE;}
+    
+    // Pre: success()
+    // Post: Returns the number of moves in the route
+    public int getLength() {return length;}
+    
+    // Pre: success()
+    // Post: Returns the treasure numbers in the order they are collected
+    public int[] getOrder() {return order.clone();}
+    
+    // Post: costs[mask * k + i] is the length of a shortest walk from the
+    //       start that collects exactly the treasures in mask and ends at
+    //       treasure i; order and length describe a best complete route
+    private void heldKarp() {
+        int full = (1 << k) - 1;
+        costs = new int[(full + 1) * k];
+        Arrays.fill(costs, INFINITE);
+        for (int i = 0; i < k; ++i) {
+            costs[(1 << i) * k + i] = legs[k][i];
+        }
+        int[][] layers = subsetsBySize();
+        for (int size = 2; size <= k; ++size) {
+            int[] layer = layers[size];
+            IntStream.range(0, layer.length).parallel().forEach(n -> fillSubset(layer[n]));
+        }
+        
+        int last = -1;
+        length = INFINITE;
+        for (int i = 0; i < k; ++i) {
+            int total = add(costs[full * k + i], legs[i][k + 1]);
+            if (total < length) {
+                length = total;
+                last = i;
+            }
+        }
+        if (last >= 0) {
+            order = new int[k];
+            for (int mask = full, pos = k - 1; pos >= 0; --pos) {
+                order[pos] = last;
+                int prev = mask ^ (1 << last);
+                if (prev != 0) {
+                    for (int j = 0; j < k; ++j) {
+                        if ((prev & (1 << j)) != 0 && add(costs[prev * k + j], legs[j][last]) == costs[mask * k + last]) {
+                            last = j;
+                            break;
+                        }
+                    }
+                }
+                mask = prev;
+            }
+        }
+    }
+    
+    private void fillSubset(int mask) {
+        for (int i = 0; i < k; ++i) {
+            if ((mask & (1 << i)) != 0) {
+                int prev = mask ^ (1 << i);
+                int best = INFINITE;
+                for (int j = 0; j < k; ++j) {
+                    if ((prev & (1 << j)) != 0) {
+                        best = Math.min(best, add(costs[prev * k + j], legs[j][i]));
+                    }
+                }
+                costs[mask * k + i] = best;
+            }
+        }
+    }
+    
+    private int[][] subsetsBySize() {
+        int[] counts = new int[k + 1];
+        for (int mask = 0; mask < (1 << k); ++mask) {
+            counts[Integer.bitCount(mask)]++;
+        }
+        int[][] layers = new int[k + 1][];
+        for (int size = 0; size <= k; ++size) {
+            layers[size] = new int[counts[size]];
+            counts[size] = 0;
+        }
+        for (int mask = 0; mask < (1 << k); ++mask) {
+            int size = Integer.bitCount(mask);
+            layers[size][counts[size]++] = mask;
+        }
+        return layers;
+    }
+    
+    private static int add(int a, int b) {
+        return (a == INFINITE || b == INFINITE) ? INFINITE : a + b;
+    }
+    
+    // Pre: success()
+    // Post: Returns the route as a path that solves the maze
+    public MazePath getPath() {
+        MazePath path = new MazePath(m.getStart().X(), m.getStart().Y());
+        int from = k;
+        for (int i = 0; i <= order.length; ++i) {
+            int to = (i < order.length) ? order[i] : k + 1;
+            appendLeg(path, tables[from], points[from], points[to]);
+            from = to;
+        }
+        return path;
+    }
+    
+    // Pre: table holds the distances from source; target is reachable
+    // Post: Appends the cells after source on a shortest path to target
+    private void appendLeg(MazePath path, int[] table, int source, int target) {
+        int[] leg = new int[table[target]];
+        int[] open = new int[4];
+        int cell = target;
+        for (int pos = leg.length - 1; pos >= 0; --pos) {
+            leg[pos] = cell;
+            int n = m.openNeighbors(cell, open);
+            for (int i = 0; i < n; ++i) {
+                if (table[open[i]] == table[cell] - 1) {
+                    cell = open[i];
+                    break;
+                }
+            }
+        }
+        for (int c: leg) {
+            path.append(m.cellAt(c));
+        }
+    }
+}
@@ -57,7 +57,7 @@ public class MazePanel extends JPanel {
         for (int x = 0; x < m.getXSize(); ++x) {
             for (int y = 0; y < m.getYSize(); ++y) {
                 g.setColor(Color.black);
-                MazeCell c = new MazeCell(x, y);
+                MazeCell c = m.getCell(x, y);
                 int xBase = (int)((double)x * getXUnit());
                 int yBase = (int)((double)y * getYUnit());
                 
@@ -12,6 +12,9 @@ import maze.core.MazeExplorer;
 import maze.core.MazePath;
 import search.core.BestFirstHeuristic;
 import search.core.BestFirstSearcher;
+import search.core.MetricsSampler;
+import search.core.SearchMetrics;
+import search.core.Searcher;
 
 @SuppressWarnings("serial")
 public class MazeViewer extends JFrame {
@@ -22,6 +25,7 @@ public class MazeViewer extends JFrame {
     private JButton makeMaze, startPath, checkPath, up, down, left, right, solve;
     private JSlider perfector;
     private JTextField nField, dField, bField, sField;
+    private JTextField expField, openField, hTimeField, succTimeField;
     private JTextField mazeX, mazeY, treasure;
     private MoveListen mListen = new MoveListen();
     private AIReflector<BestFirstHeuristic<MazeExplorer>> heuristics;
@@ -48,7 +52,7 @@ public class MazeViewer extends JFrame {
         perfector = new JSlider(JSlider.VERTICAL, 0, 100, 100);
         leftSide.add(perfector);
         
-        JPanel top = new JPanel(new GridLayout(2, 1));
+        JPanel top = new JPanel(new GridLayout(3, 1));
         pane.add(top, BorderLayout.NORTH);
         
         JPanel controls = new JPanel(new FlowLayout());
@@ -101,6 +105,25 @@ public class MazeViewer extends JFrame {
         data.add(new JLabel("Solution length"));
         data.add(sField);
         
+        JPanel metrics = new JPanel(new FlowLayout());
+        top.add(metrics);
+        
+        expField = new JTextField(6);
+        metrics.add(new JLabel("Expanded"));
+        metrics.add(expField);
+        
+        openField = new JTextField(6);
+        metrics.add(new JLabel("Open peak"));
+        metrics.add(openField);
+        
+        hTimeField = new JTextField(5);
+        metrics.add(new JLabel("Heuristic ms"));
+        metrics.add(hTimeField);
+        
+        succTimeField = new JTextField(5);
+        metrics.add(new JLabel("Successor ms"));
+        metrics.add(succTimeField);
+        
         JPanel superDir = new JPanel(new GridLayout(5, 1));
         pane.add(superDir, BorderLayout.EAST);
         superDir.add(new JPanel(new FlowLayout()));
@@ -156,7 +179,7 @@ public class MazeViewer extends JFrame {
             if (directionMap.containsKey(e.getSource())) {
             	Direction d = directionMap.get(e.getSource());
             	if (!m.blocked(path.getEnd(), d)) {
-            		MazeCell next = d.successor(path.getEnd());
+            		MazeCell next = m.successor(path.getEnd(), d);
             		if (m.within(next)) {
             			path.append(next);
             			mp.repaint();
@@ -178,23 +201,34 @@ public class MazeViewer extends JFrame {
         }
     }
     
+    // Solves on a thread of its own, so that the metrics fields can be
+    // refreshed while the search runs
     private class SolveMaze implements ActionListener {
         public void actionPerformed(ActionEvent e) {        
             try {
 				BestFirstHeuristic<MazeExplorer> bfh = heuristics.newInstanceOf(heuristicChooser.getSelectedItem().toString());
 				BestFirstSearcher<MazeExplorer> searcher = new BestFirstSearcher<MazeExplorer>(bfh);
+				searcher.setTimed(true);
 				MazeExplorer endNode = new MazeExplorer(m, m.getEnd());
 				endNode.addTreasures(m.getTreasures());
+				MazeExplorer startNode = new MazeExplorer(m, m.getStart());
+				Maze solving = m;
 				
-				searcher.solve(new MazeExplorer(m, m.getStart()), endNode);
-				if (searcher.success()) {
-					path = new MazePath(searcher, m);
-					mp.setPath(path);
-					mp.repaint();
-					displayStats(searcher);
-				} else {
-					JOptionPane.showMessageDialog(MazeViewer.this, "Sorry, no solution found.");
-				}
+				MetricsSampler sampler = new MetricsSampler(searcher, 100, 
+						metrics -> SwingUtilities.invokeLater(() -> displayMetrics(metrics)));
+				solve.setEnabled(false);
+				sampler.start();
+				new Thread(() -> {
+					try {
+						searcher.solve(startNode, endNode);
+						SwingUtilities.invokeLater(() -> showSolution(searcher, solving));
+					} catch (Exception | OutOfMemoryError e2) {
+						SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(MazeViewer.this, "Search failed: " + e2));
+					} finally {
+						sampler.stop();
+						SwingUtilities.invokeLater(() -> solve.setEnabled(true));
+					}
+				}).start();
 				
             } catch (Exception e1) {
 				JOptionPane.showMessageDialog(MazeViewer.this, e1.getMessage());
@@ -202,7 +236,27 @@ public class MazeViewer extends JFrame {
         }
     }
     
-    private void displayStats(BestFirstSearcher<MazeExplorer> searcher) {
+    private void showSolution(BestFirstSearcher<MazeExplorer> searcher, Maze solved) {
+    	solve.setEnabled(true);
+    	displayMetrics(searcher.getMetrics());
+    	if (searcher.success()) {
+    		path = new MazePath(searcher, solved);
+    		mp.setPath(path);
+    		mp.repaint();
+    		displayStats(searcher);
+    	} else {
+    		JOptionPane.showMessageDialog(MazeViewer.this, "Sorry, no solution found.");
+    	}
+    }
+    
+    private void displayMetrics(SearchMetrics metrics) {
+    	expField.setText(Long.toString(metrics.getExpansions()));
+    	openField.setText(Integer.toString(metrics.getOpenPeak()));
+    	hTimeField.setText(Long.toString(metrics.getHeuristicNanos() / 1000000));
+    	succTimeField.setText(Long.toString(metrics.getSuccessorNanos() / 1000000));
+    }
+    
+    private void displayStats(Searcher<MazeExplorer> searcher) {
     	nField.setText(Integer.toString(searcher.getNumNodes()));
         dField.setText(Integer.toString(searcher.getMaxDepth()));
         double b = searcher.getBranchingFactor(0.01);
@@ -0,0 +1,34 @@
+package maze.heuristics;
+
+import maze.core.Maze;
+import maze.core.MazeExplorer;
+import maze.core.MazeLandmarks;
+import search.core.BestFirstHeuristic;
+
+// The ALT estimate: the larger of the Manhattan distance and the
+// landmark bound of MazeLandmarks.  Both are admissible, so their maximum
+// is too.  Treasures are ignored, so this suits mazes without them.
+// Stale landmarks are replaced by the maze's current shared ones.
+public class Landmark implements BestFirstHeuristic<MazeExplorer> {
+    private volatile MazeLandmarks landmarks;
+    
+    public Landmark() {}
+    
+    // Post: Estimates with the given landmarks on their own maze, until
+    //       they go stale, and with the shared landmarks otherwise
+    public Landmark(MazeLandmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+    
+    @Override
+    public int getDistance(MazeExplorer node, MazeExplorer goal) {
+        MazeLandmarks l = landmarks;
+        Maze m = node.getMaze();
+        if (l == null || l.getMaze() != m || l.isStale()) {
+            l = MazeLandmarks.of(m);
+            landmarks = l;
+        }
+        int manhattan = Math.abs(node.getX() - goal.getX()) + Math.abs(node.getY() - goal.getY());
+        return Math.max(manhattan, l.lowerBound(node.getCell(), goal.getCell()));
+    }
+}
@@ -12,8 +12,8 @@ public class Manhattan implements BestFirstHeuristic<MazeExplorer>{
 
     @Override
     public int getDistance(MazeExplorer node, MazeExplorer goal) {
-        int dX = Math.abs(node.getLocation().X() - goal.getLocation().X());
-        int dY = Math.abs(node.getLocation().Y() - goal.getLocation().Y());
+        int dX = Math.abs(node.getX() - goal.getX());
+        int dY = Math.abs(node.getY() - goal.getY());
         return dX + dY;
 
     }
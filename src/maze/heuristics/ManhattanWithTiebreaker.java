@@ -11,10 +11,10 @@ public class ManhattanWithTiebreaker implements BestFirstHeuristic<MazeExplorer>
     @Override
     public int getDistance(MazeExplorer node, MazeExplorer goal) {
 
-        int dX = Math.abs(node.getLocation().X() - goal.getLocation().X());
-        int dY = Math.abs(node.getLocation().Y() - goal.getLocation().Y());
-        int dx = Math.abs(node.getMaze().getStart().X() - goal.getLocation().X());
-        int dy =  Math.abs(node.getMaze().getStart().Y() - goal.getLocation().Y());
+        int dX = Math.abs(node.getX() - goal.getX());
+        int dY = Math.abs(node.getY() - goal.getY());
+        int dx = Math.abs(node.getMaze().getStart().X() - goal.getX());
+        int dy =  Math.abs(node.getMaze().getStart().Y() - goal.getY());
         int h = dX + dY;
         int cross = Math.abs(dX*dy - dx*dY);
         return (int)(h + cross * 0.001);
@@ -0,0 +1,144 @@
+package maze.heuristics;
+
+import java.util.Arrays;
+
+import maze.core.Maze;
+import maze.core.MazeDistances;
+import maze.core.MazeExplorer;
+import search.core.BestFirstHeuristic;
+
+// Estimates the rest of a treasure hunt from true maze distances.  Any
+// route from here must walk to some uncollected treasure, then visit the
+// others and finish at the goal, and that last stretch is a path through
+// those treasures and the goal, so it is no shorter than their minimum
+// spanning tree.  The estimate, the distance to the nearest uncollected
+// treasure plus that tree, is therefore admissible.  Distances come from
+// the BFS tables of MazeDistances; trees are cached per set of uncollected
+// treasures when there are few enough treasures.  Once Maze.setWall()
+// changes a wall, all of it is built again from the new walls.
+public class MazeDistanceTreasure implements BestFirstHeuristic<MazeExplorer> {
+    private final static int MAX_CACHED_TREASURES = 20;
+    
+    private volatile Context context;
+    
+    @Override
+    public int getDistance(MazeExplorer node, MazeExplorer goal) {
+        Context c = context;
+        if (c == null || !c.matches(node.getMaze(), goal)) {
+            c = new Context(node.getMaze(), goal);
+            context = c;
+        }
+        return c.estimate(node);
+    }
+    
+    // Everything known about one maze and goal, as the walls stood after
+    // numWallChanges changes.  Entries of the tree cache
+    // may be filled in by several threads at once; each writes the same
+    // value, so no locking is needed.
+    private static class Context {
+        private Maze m;
+        private int numWallChanges;
+        private MazeExplorer goal;
+        private int[] treasures;
+        private int[][] fromTreasure;
+        private int[] toGoal;
+        private int[][] between;
+        private int[] treeCache;
+        
+        Context(Maze m, MazeExplorer goal) {
+            this.m = m;
+            this.goal = goal;
+            numWallChanges = m.getNumWallChanges();
+            MazeDistances distances = MazeDistances.of(m);
+            toGoal = distances.from(goal.getCell());
+            
+            int k = 0;
+            treasures = new int[m.numTreasures()];
+            for (int n = 0; n < m.numTreasures(); ++n) {
+                if (goal.hasTreasure(n)) {treasures[k++] = n;}
+            }
+            treasures = Arrays.copyOf(treasures, k);
+            fromTreasure = new int[k][];
+            for (int i = 0; i < k; ++i) {
+                fromTreasure[i] = distances.from(m.treasureCell(treasures[i]));
+            }
+            between = new int[k + 1][k + 1];
+            for (int i = 0; i < k; ++i) {
+                for (int j = 0; j < k; ++j) {
+                    between[i][j] = fromTreasure[i][m.treasureCell(treasures[j])];
+                }
+                between[i][k] = between[k][i] = toGoal[m.treasureCell(treasures[i])];
+            }
+            if (k <= MAX_CACHED_TREASURES) {
+                treeCache = new int[1 << k];
+                Arrays.fill(treeCache, -1);
+            }
+        }
+        
+        boolean matches(Maze m, MazeExplorer goal) {
+            return this.m == m && numWallChanges == m.getNumWallChanges()
+                && (this.goal == goal || this.goal.equals(goal));
+        }
+        
+        int estimate(MazeExplorer node) {
+            int cell = node.getCell();
+            int numLeft = 0, mask = 0;
+            int nearest = Integer.MAX_VALUE;
+            for (int i = 0; i < treasures.length; ++i) {
+                if (!node.hasTreasure(treasures[i])) {
+                    numLeft++;
+                    mask |= 1 << i;
+                    nearest = Math.min(nearest, unreachableAsMax(fromTreasure[i][cell]));
+                }
+            }
+            if (numLeft == 0) {
+                return unreachableAsMax(toGoal[cell]);
+            }
+            
+            int tree;
+            if (treeCache != null && treeCache[mask] >= 0) {
+                tree = treeCache[mask];
+            } else {
+                int[] left = new int[numLeft + 1];
+                numLeft = 0;
+                for (int i = 0; i < treasures.length; ++i) {
+                    if (!node.hasTreasure(treasures[i])) {left[numLeft++] = i;}
+                }
+                left[numLeft] = treasures.length;
+                tree = spanningTree(left, numLeft + 1);
+                if (treeCache != null) {treeCache[mask] = tree;}
+            }
+            return (nearest == Integer.MAX_VALUE || tree == Integer.MAX_VALUE) ? Integer.MAX_VALUE : nearest + tree;
+        }
+        
+        // Post: Returns the weight of a minimum spanning tree of the first
+        //       n entries of vertices, by Prim's algorithm
+        private int spanningTree(int[] vertices, int n) {
+            int[] best = new int[n];
+            boolean[] inTree = new boolean[n];
+            Arrays.fill(best, Integer.MAX_VALUE);
+            best[0] = 0;
+            int total = 0;
+            for (int added = 0; added < n; ++added) {
+                int next = -1;
+                for (int i = 0; i < n; ++i) {
+                    if (!inTree[i] && (next < 0 || best[i] < best[next])) {next = i;}
+                }
+                if (best[next] == Integer.MAX_VALUE) {
+                    return Integer.MAX_VALUE;
+                }
+                inTree[next] = true;
+                total += best[next];
+                for (int i = 0; i < n; ++i) {
+                    int d = unreachableAsMax(between[vertices[next]][vertices[i]]);
+                    if (!inTree[i] && d < best[i]) {best[i] = d;}
+                }
+            }
+            return total;
+        }
+        
+        private static int unreachableAsMax(int d) {
+            return d == MazeDistances.UNREACHABLE ? Integer.MAX_VALUE : d;
+        }
+    }
+}
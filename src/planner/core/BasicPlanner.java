@@ -1,40 +1,69 @@
 package planner.core;
 
+import search.core.AnytimeSearcher;
 import search.core.BestFirstHeuristic;
 import search.core.BestFirstObject;
 import search.core.BestFirstSearcher;
+import search.core.Searcher;
 
 abstract public class BasicPlanner<T extends BestFirstObject<T>> implements Planner {
-	private BestFirstSearcher<T> searcher;
+	private Searcher<T> searcher, lastUsed;
+	private BestFirstHeuristic<T> heuristic;
 	
 	public BasicPlanner(BestFirstHeuristic<T> bfh) {
-		searcher = new BestFirstSearcher<T>(bfh);
+		this(new BestFirstSearcher<T>(bfh));
+		heuristic = bfh;
+	}
+	
+	public BasicPlanner(Searcher<T> searcher) {
+		this.searcher = searcher;
+		this.lastUsed = searcher;
+		this.heuristic = null;
 	}
 	
 	abstract protected T makeStart(Domain d, Problem p);
 	abstract protected T makeTarget(Domain d, Problem p);
-	abstract protected Action getGeneratingAction(BestFirstSearcher<T> bfs, int i);
+	abstract protected Action getGeneratingAction(Searcher<T> bfs, int i);
 	
 	public Plan makePlan(Domain d, Problem p) {
+		return makePlan(searcher, d, p);
+	}
+	
+	// Pre: This planner was built from a heuristic; timeLimit > 0
+	// Post: Runs an anytime search that starts with a quick, possibly
+	//       longer plan and improves it until it is optimal or timeLimit
+	//       milliseconds have passed; returns the best plan found, which
+	//       is empty if none was
+	public Plan makePlan(Domain d, Problem p, long timeLimit) {
+		if (heuristic == null) {
+			throw new IllegalStateException("Deadline planning needs a heuristic");
+		}
+		AnytimeSearcher<T> anytime = new AnytimeSearcher<T>(heuristic);
+		anytime.setTimeLimit(timeLimit);
+		return makePlan(anytime, d, p);
+	}
+	
+	private Plan makePlan(Searcher<T> s, Domain d, Problem p) {
+		lastUsed = s;
 		Plan result = new Plan();
-		searcher.solve(makeStart(d, p), makeTarget(d, p));
-		if (searcher.success()) {
-			for (int i = 0; i < searcher.numSteps(); ++i) {
-				result.appendAction(getGeneratingAction(searcher, i));
+		s.solve(makeStart(d, p), makeTarget(d, p));
+		if (s.success()) {
+			for (int i = 0; i < s.numSteps(); ++i) {
+				result.appendAction(getGeneratingAction(s, i));
 			}
 		} 
 		return result;
 	}
 	
 	public int getNumNodes() {
-		return searcher.getNumNodes();
+		return lastUsed.getNumNodes();
 	}
 	
 	public double getBranchingFactor() {
-		return searcher.getBranchingFactor(0.001);
+		return lastUsed.getBranchingFactor(0.001);
 	}
 	
 	public int getMaxDepth() {
-		return searcher.getMaxDepth();
+		return lastUsed.getMaxDepth();
 	}
 }
@@ -1,13 +1,17 @@
 package planner.core;
 
 import search.core.BestFirstHeuristic;
-import search.core.BestFirstSearcher;
+import search.core.Searcher;
 
 public class BestFirstPlanner extends BasicPlanner<PlanStep> {
 	
 	public BestFirstPlanner(BestFirstHeuristic<PlanStep> bfh) {
 		super(bfh);
 	}
+	
+	public BestFirstPlanner(Searcher<PlanStep> searcher) {
+		super(searcher);
+	}
 
 	@Override
 	protected PlanStep makeStart(Domain d, Problem p) {
@@ -20,7 +24,7 @@ public class BestFirstPlanner extends BasicPlanner<PlanStep> {
 	}
 
 	@Override
-	protected Action getGeneratingAction(BestFirstSearcher<PlanStep> bfs, int i) {
+	protected Action getGeneratingAction(Searcher<PlanStep> bfs, int i) {
 		return bfs.get(i).getGeneratingAction();
 	}
 }
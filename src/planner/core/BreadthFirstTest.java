@@ -7,6 +7,7 @@ import java.io.File;
 import org.junit.Test;
 
 import planner.heuristics.BreadthFirst;
+import planner.heuristics.UnmetGoal;
 import search.core.BestFirstHeuristic;
 
 public class BreadthFirstTest {
@@ -61,6 +62,28 @@ public class BreadthFirstTest {
 		testOne(new BreadthFirst(), "domains", "blocks", "probBLOCKS-6-2.pddl");
 	}
 	
+	@Test
+	public void testDeadline() {
+		Domain d = new Domain(PlanGraphTest.path2String("domains", "blocks", "domain.pddl"));
+		Problem prob = new Problem(new File(PlanGraphTest.path2String("domains", "blocks", "probBLOCKS-6-0.pddl")));
+		Plan optimal = new BestFirstPlanner(new UnmetGoal()).makePlan(d, prob);
+		Plan result = new BestFirstPlanner(new UnmetGoal()).makePlan(d, prob, 60000);
+		assertTrue(result.isPlanValid(prob));
+		assertTrue(result.length() <= optimal.length());
+	}
+	
+	@Test
+	public void testTinyDeadline() {
+		Domain d = new Domain(PlanGraphTest.path2String("domains", "blocks", "domain.pddl"));
+		Problem prob = new Problem(new File(PlanGraphTest.path2String("domains", "blocks", "probBLOCKS-9-0.pddl")));
+		long start = System.currentTimeMillis();
+		Plan result = new BestFirstPlanner(new UnmetGoal()).makePlan(d, prob, 20);
+		long duration = System.currentTimeMillis() - start;
+		System.out.println("20 ms deadline: " + duration + " ms, length " + result.length());
+		assertTrue(duration < 2000);
+		assertTrue(result.length() == 0 || result.isPlanValid(prob));
+	}
+	
 	public static void testOne(BestFirstHeuristic<PlanStep> bfh, String... filePath) {
 		String problemFile = PlanGraphTest.path2String(filePath);
 		System.out.println("Trying " + problemFile);
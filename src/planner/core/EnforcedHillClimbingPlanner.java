@@ -0,0 +1,155 @@
+package planner.core;
+
+import java.util.*;
+
+import planner.heuristics.UnmetGoal;
+import search.core.BestFirstHeuristic;
+
+// FF-style enforced hill-climbing.  From the current state, a breadth-first
+// search looks for any state with a shorter relaxed plan, applying only
+// the helpful actions of each state it visits; the path to that state is
+// appended to the plan and the search starts again from there.  If some
+// plateau cannot be escaped that way, or escaping it takes more than
+// plateauLimit expansions, the problem is handed in full to a complete
+// best-first planner instead.
+public class EnforcedHillClimbingPlanner implements Planner {
+	public final static int DEFAULT_PLATEAU_LIMIT = 5000;
+	
+	private BestFirstHeuristic<PlanStep> fallbackHeuristic;
+	private BestFirstPlanner fallback;
+	private int plateauLimit = DEFAULT_PLATEAU_LIMIT;
+	private int numNodes, numExpanded, maxDepth;
+	
+	public EnforcedHillClimbingPlanner() {
+		this(new UnmetGoal());
+	}
+	
+	public EnforcedHillClimbingPlanner(BestFirstHeuristic<PlanStep> fallbackHeuristic) {
+		this.fallbackHeuristic = fallbackHeuristic;
+	}
+	
+	// Post: Returns true if the last plan came from the best-first fallback
+	public boolean usedFallback() {return fallback != null;}
+	
+	// Pre: limit >= 0
+	// Post: A breadth-first search that expands limit nodes without
+	//       escaping its plateau gives up and triggers the fallback;
+	//       0 means no limit
+	public void setPlateauLimit(int limit) {plateauLimit = limit;}
+	
+	public Plan makePlan(Domain d, Problem p) {
+		numNodes = numExpanded = maxDepth = 0;
+		fallback = null;
+		
+		Plan result = new Plan();
+		GroundActions ground = new GroundActions(d, p);
+		Node current = new Node(d, p, ground, p.getStartState(), null, null);
+		while (current.h > 0) {
+			Node better = findBetter(current);
+			if (better == null) {
+				fallback = new BestFirstPlanner(fallbackHeuristic);
+				return fallback.makePlan(d, p);
+			}
+			better.appendTo(result);
+			current = new Node(d, p, ground, better.state, null, null);
+		}
+		return result;
+	}
+	
+	// Post: Returns the first node found breadth-first from start, using
+	//       only helpful actions, whose relaxed distance is below start's;
+	//       returns null if there is none, or if plateauLimit nodes were
+	//       expanded without finding one
+	private Node findBetter(Node start) {
+		Set<State> visited = new HashSet<State>();
+		Queue<Node> queue = new ArrayDeque<Node>();
+		visited.add(start.state);
+		queue.add(start);
+		int expanded = 0;
+		while (!queue.isEmpty()) {
+			if (plateauLimit > 0 && expanded >= plateauLimit) {return null;}
+			Node node = queue.remove();
+			expanded++;
+			numExpanded++;
+			for (Action act: node.helpful) {
+				State next = act.apply(node.state);
+				if (visited.add(next)) {
+					numNodes++;
+					Node child = new Node(start.d, start.p, start.ground, next, node, act);
+					maxDepth = Math.max(maxDepth, child.depth);
+					if (child.h < start.h) {return child;}
+					queue.add(child);
+				}
+			}
+		}
+		return null;
+	}
+	
+	public int getNumNodes() {
+		return usedFallback() ? fallback.getNumNodes() : numNodes;
+	}
+	
+	public double getBranchingFactor() {
+		if (usedFallback()) {return fallback.getBranchingFactor();}
+		return numExpanded == 0 ? 0 : (double)numNodes / numExpanded;
+	}
+	
+	public int getMaxDepth() {
+		return usedFallback() ? fallback.getMaxDepth() : maxDepth;
+	}
+	
+	// A state together with its relaxed distance h, the number of distinct
+	// actions in its relaxed plan, and its helpful actions, both taken from
+	// a single plan graph.  A state that meets the goals has h = 0; one from
+	// which the goals are unreachable even without delete effects has h =
+	// Integer.MAX_VALUE and no helpful actions.
+	private static class Node {
+		Domain d;
+		Problem p;
+		GroundActions ground;
+		State state;
+		Node parent;
+		Action generator;
+		int h, depth;
+		Set<Action> helpful;
+		
+		Node(Domain d, Problem p, GroundActions ground, State state, Node parent, Action generator) {
+			this.d = d;
+			this.p = p;
+			this.ground = ground;
+			this.state = state;
+			this.parent = parent;
+			this.generator = generator;
+			this.depth = (parent == null) ? 0 : parent.depth + 1;
+			this.helpful = Collections.emptySet();
+			if (p.goalsMet(state)) {
+				h = 0;
+			} else {
+				PlanGraph pg = new PlanGraph(d, state, p, ground);
+				if (pg.allGoalsReached()) {
+					Plan relaxed = pg.extractNoDeletePlan();
+					h = new HashSet<Action>(toList(relaxed)).size();
+					helpful = pg.getHelpfulActions(relaxed);
+				} else {
+					h = Integer.MAX_VALUE;
+				}
+			}
+		}
+		
+		private static List<Action> toList(Plan plan) {
+			List<Action> result = new ArrayList<Action>(plan.length());
+			for (Action act: plan) {
+				result.add(act);
+			}
+			return result;
+		}
+		
+		// Post: Appends the actions leading from the root to this node
+		void appendTo(Plan plan) {
+			if (parent != null) {
+				parent.appendTo(plan);
+				plan.appendAction(generator);
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package planner.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class EnforcedHillClimbingTest {
+	
+	public EnforcedHillClimbingPlanner test(String... path) {
+		return test(new EnforcedHillClimbingPlanner(), path);
+	}
+	
+	public EnforcedHillClimbingPlanner test(EnforcedHillClimbingPlanner p, String... path) {
+		Domain d = new Domain(PlanGraphTest.path2String(path[0], path[1], "domain.pddl"));
+		Problem prob = new Problem(new File(PlanGraphTest.path2String(path)));
+		long start = System.currentTimeMillis();
+		Plan result = p.makePlan(d, prob);
+		System.out.println(path[2] + ": " + result.length() + " steps, " + (System.currentTimeMillis() - start) + " ms" + (p.usedFallback() ? " (fallback)" : ""));
+		assertTrue(result.isPlanValid(prob));
+		return p;
+	}
+
+	@Test
+	public void test1() {
+		test("domains", "blocks", "probBLOCKS-4-0.pddl");
+	}
+
+	@Test
+	public void test2() {
+		assertFalse(test("domains", "blocks", "probBLOCKS-6-0.pddl").usedFallback());
+	}
+
+	@Test
+	public void test3() {
+		test("domains", "blocks", "probBLOCKS-12-0.pddl");
+	}
+
+	@Test
+	public void testPlateauLimit() {
+		// 6-0 has a plateau that takes more than two expansions to escape
+		EnforcedHillClimbingPlanner p = new EnforcedHillClimbingPlanner();
+		p.setPlateauLimit(2);
+		assertTrue(test(p, "domains", "blocks", "probBLOCKS-6-0.pddl").usedFallback());
+	}
+}
@@ -0,0 +1,57 @@
+package planner.core;
+
+import java.util.*;
+
+// Every ground action of one problem that could ever become applicable.
+// Grounding an action schema against a state is expensive, so it is done
+// once, against the state of everything reachable from the start when
+// delete effects are ignored; every state reachable from the start holds
+// a subset of those predicates, so its applicable actions are exactly
+// the ground actions whose preconditions it meets.  That only holds
+// without negated preconditions; a domain with any is grounded per state.
+public class GroundActions {
+	private Domain d;
+	private List<Action> actions;
+	
+	public GroundActions(Domain d, Problem p) {
+		this.d = d;
+		if (hasNegatedPreconditions(d)) {return;}
+		
+		State reachable = p.getStartState();
+		Set<Action> grounded = d.makeInstantiatedActions(reachable);
+		while (true) {
+			List<Predicate> added = new ArrayList<Predicate>();
+			for (Action act: grounded) {
+				added.addAll(act.getAddEffects());
+			}
+			State next = new State(reachable, added);
+			if (next.size() == reachable.size()) {break;}
+			reachable = next;
+			grounded = d.makeInstantiatedActions(reachable);
+		}
+		actions = new ArrayList<Action>(grounded);
+	}
+	
+	private static boolean hasNegatedPreconditions(Domain d) {
+		for (Action act: d.getActions()) {
+			for (Predicate pre: act.getPreconditions()) {
+				if (!pre.isTrue()) {return true;}
+			}
+		}
+		return false;
+	}
+	
+	// Pre: state is reachable from the problem's start, possibly ignoring
+	//      delete effects
+	// Post: Returns the same actions as Domain.makeInstantiatedActions(state)
+	public Set<Action> applicableIn(State state) {
+		if (actions == null) {return d.makeInstantiatedActions(state);}
+		Set<Action> result = new LinkedHashSet<Action>();
+		for (Action act: actions) {
+			if (act.isLegal(state)) {
+				result.add(act);
+			}
+		}
+		return result;
+	}
+}
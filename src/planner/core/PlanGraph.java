@@ -1,13 +1,19 @@
 package planner.core;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PlanGraph {
 	private final static boolean DEBUG = false;
-	private static HashMap<State,State> state2newState = new HashMap<>();
-	private static HashMap<State,ArrayList<Action>> state2newLevel = new HashMap<>();
+	// Shared by every PlanGraph, including those built concurrently by
+	// parallel searches; a level is stored before its resulting state so
+	// that a state found in state2newState always has its level.
+	private static Map<State,State> state2newState = new ConcurrentHashMap<>();
+	private static Map<State,ArrayList<Action>> state2newLevel = new ConcurrentHashMap<>();
 	
 	private Set<Action> used;
+	private Domain d;
+	private GroundActions ground;
 	
 	private ArrayList<ArrayList<Action>> actions;
 	private Map<Predicate,Action> firstAdders;
@@ -64,7 +70,51 @@ public class PlanGraph {
 		//   contains that Action.
 	}
 	
+	// Pre: allGoalsReached(); relaxed is extractNoDeletePlan()
+	// Post: Returns the FF-style helpful actions: those applicable in the
+	//       start state that add a goal or relaxed-plan precondition which
+	//       is false now and which the first level of the relaxed plan
+	//       achieves
+	public Set<Action> getHelpfulActions(Plan relaxed) {
+		Set<Predicate> subgoals = new HashSet<Predicate>();
+		goals.forEach(subgoals::add);
+		for (Action act: relaxed) {
+			act.getPreconditions().forEach(subgoals::add);
+		}
+		
+		Set<Predicate> firstLevel = new HashSet<Predicate>();
+		for (Action act: relaxed) {
+			if (act.isLegal(start)) {
+				for (Predicate added: act.getAddEffects()) {
+					if (subgoals.contains(added) && !start.predIsTrue(added)) {
+						firstLevel.add(added);
+					}
+				}
+			}
+		}
+		
+		Set<Action> helpful = new LinkedHashSet<Action>();
+		for (Action act: applicableIn(start)) {
+			for (Predicate added: act.getAddEffects()) {
+				if (firstLevel.contains(added)) {
+					helpful.add(act);
+					break;
+				}
+			}
+		}
+		return helpful;
+	}
+	
 	public PlanGraph(Domain d, State current, Problem p) {
+		this(d, current, p, null);
+	}
+	
+	// Pre: ground is null or was made for d and p
+	// Post: Builds the graph from current, taking applicable actions from
+	//       ground rather than grounding d's actions level by level
+	public PlanGraph(Domain d, State current, Problem p, GroundActions ground) {
+		this.d = d;
+		this.ground = ground;
 		used = new HashSet<Action>();
 		
 		start = current;
@@ -73,7 +123,7 @@ public class PlanGraph {
 		firstAdders = new HashMap<Predicate,Action>();
 		while (!current.allGoalsMet(goals)) {
 			State prev = current;
-			current = addNewLevel(current, d);
+			current = addNewLevel(current);
 			if (prev.equals(current)) {
 				allGoalsReached = false;
 				return;
@@ -83,7 +133,11 @@ public class PlanGraph {
 		if (DEBUG) {System.out.println("levels: " + actions.size());}
 	}
 
-	private State addNewLevel(State current, Domain d) {
+	private Set<Action> applicableIn(State current) {
+		return ground == null ? d.makeInstantiatedActions(current) : ground.applicableIn(current);
+	}
+	
+	private State addNewLevel(State current) {
 		if (state2newState.containsKey(current)) {
 			ArrayList<Action> level = state2newLevel.get(current);
 			actions.add(level);
@@ -96,19 +150,22 @@ public class PlanGraph {
 			State startState = current;
 			ArrayList<Action> level = new ArrayList<Action>();
 			long start = System.currentTimeMillis();
-			Set<Action> doable = d.makeInstantiatedActions(current);
+			Set<Action> doable = applicableIn(current);
 			if (DEBUG) System.out.println("To make actions took " + (System.currentTimeMillis() - start) + " ms");
+			List<Predicate> added = new ArrayList<Predicate>();
 			for (Action act: doable) {
 				if (!used.contains(act)) {
 					used.add(act);
 					level.add(act);
-					current = applyAction(act, current);
+					updateFirstAdders(act);
+					added.addAll(act.getAddEffects());
 				}
 			}
+			current = new State(current, added);
 			actions.add(level);
 			if (DEBUG) {System.out.println("level: " + actions.size() + " width: " + level.size() + " states: " + current.size() + " actions: " + doable.size());}
-			state2newState.put(startState, current);
 			state2newLevel.put(startState, level);
+			state2newState.put(startState, current);
 			return current;
 		}
 	}
@@ -121,11 +178,6 @@ public class PlanGraph {
 		}
 	}
 	
-	private State applyAction(Action act, State current) {
-		updateFirstAdders(act);
-		return new State(current, act.getAddEffects());
-	}
-	
 	public int getGraphDepth() {
 		return actions.size();
 	}
@@ -46,4 +46,20 @@ public class PlanGraphTest {
 	public void test3() {
 		test("domains", "blocks", "probBLOCKS-4-2.pddl");
 	}
+
+	@Test
+	public void testGroundActions() {
+		Problem p = new Problem(path2String("domains", "blocks", "probBLOCKS-6-0.pddl"));
+		GroundActions ground = new GroundActions(d, p);
+		java.util.Random random = new java.util.Random(6);
+		State current = p.getStartState();
+		for (int step = 0; step < 20; ++step) {
+			java.util.Set<Action> expected = d.makeInstantiatedActions(current);
+			assertEquals(expected, ground.applicableIn(current));
+			PlanGraph pg = new PlanGraph(d, current, p, ground);
+			assertEquals(new PlanGraph(d, current, p).getGraphDepth(), pg.getGraphDepth());
+			Action[] choices = expected.toArray(new Action[0]);
+			current = choices[random.nextInt(choices.length)].apply(current);
+		}
+	}
 }
@@ -0,0 +1,43 @@
+package planner.core;
+
+import java.io.File;
+
+import planner.heuristics.UnmetGoal;
+import search.core.BestFirstSearcher;
+import search.core.ParallelBestFirstSearcher;
+import search.core.Searcher;
+
+// Times BestFirstSearcher on PDDL problems, with a binary-heap open list
+// and with a bucket-queue open list, and ParallelBestFirstSearcher with
+// 1 to 16 threads.
+public class PlannerBenchmark {
+	private final static int[] THREADS = {1, 2, 4, 8, 16};
+	
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("Usage: PlannerBenchmark domainFile problemFile...");
+			System.exit(1);
+		}
+		Domain d = new Domain(args[0]);
+		for (int i = 1; i < args.length; ++i) {
+			Problem p = new Problem(new File(args[i]));
+			System.out.println(new File(args[i]).getName());
+			for (boolean buckets: new boolean[]{false, true}) {
+				BestFirstSearcher<PlanStep> searcher = new BestFirstSearcher<>(new UnmetGoal());
+				searcher.setBucketsAllowed(buckets);
+				time(buckets ? "buckets" : "heap", searcher, d, p);
+			}
+			for (int threads: THREADS) {
+				time("hda*" + threads, new ParallelBestFirstSearcher<>(new UnmetGoal(), threads), d, p);
+			}
+		}
+	}
+	
+	private static void time(String label, Searcher<PlanStep> searcher, Domain d, Problem p) {
+		long start = System.nanoTime();
+		searcher.solve(new PlanStep(p.getStartState(), d, p), new PlanStep(p.getGoals(), d, p));
+		long duration = System.nanoTime() - start;
+		System.out.printf("  %-8s %8.1f ms %8d nodes %5d steps%n", label,
+				duration / 1e6, searcher.getNumNodes(), searcher.numSteps());
+	}
+}
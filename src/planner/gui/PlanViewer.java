@@ -9,6 +9,9 @@ import planner.core.PlanStep;
 import planner.core.Planner;
 import planner.core.Problem;
 import search.core.BestFirstHeuristic;
+import search.core.BestFirstSearcher;
+import search.core.MetricsSampler;
+import search.core.SearchMetrics;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -24,6 +27,7 @@ public class PlanViewer extends JFrame {
 	private JComboBox<String> problems;
 	private JTextArea domainText, problemText, planText;
 	private JTextField numNodes, depth, bStar, solutionLength, time, timePerStep;
+	private JTextField expanded, openPeak, heuristicTime, successorTime;
 	private JButton makePlan, checkPlan;
 	//private AIReflector<Planner> plannerMaker;
 	private AIReflector<BestFirstHeuristic<PlanStep>> plannerMaker;
@@ -73,6 +77,10 @@ public class PlanViewer extends JFrame {
 		JPanel topInfo2 = new JPanel();
 		time = makeInfoField("Time (ms)", topInfo2);
 		timePerStep = makeInfoField("ms/node", topInfo2);
+		expanded = makeInfoField("Expanded", topInfo2);
+		openPeak = makeInfoField("Open peak", topInfo2);
+		heuristicTime = makeInfoField("Heuristic (ms)", topInfo2);
+		successorTime = makeInfoField("Successors (ms)", topInfo2);
 		
 		JPanel center = new JPanel();
 		center.setLayout(new GridLayout(1, 2));
@@ -217,33 +225,47 @@ public class PlanViewer extends JFrame {
 		field.setText(display.substring(0, stop));
 	}
 	
+	private void showMetrics(SearchMetrics metrics) {
+		expanded.setText(Long.toString(metrics.getExpansions()));
+		openPeak.setText(Integer.toString(metrics.getOpenPeak()));
+		heuristicTime.setText(Long.toString(metrics.getHeuristicNanos() / 1000000));
+		successorTime.setText(Long.toString(metrics.getSuccessorNanos() / 1000000));
+	}
+	
+	// Plans on a thread of its own, so that the metrics fields can be
+	// refreshed while the search runs
 	private class PlanMaker implements ActionListener {
 
 		@Override
 		public void actionPerformed(ActionEvent arg0) {
-			for (JTextField result: new JTextField[]{numNodes, depth, bStar, solutionLength, time, timePerStep}) {
+			for (JTextField result: new JTextField[]{numNodes, depth, bStar, solutionLength, time, timePerStep, expanded, openPeak, heuristicTime, successorTime}) {
 				result.setText("");
 			}
 			planText.setText("");
 			try {
 				//Planner p = plannerMaker.newInstanceOf(planners.getSelectedItem().toString());
-				Planner p = new BestFirstPlanner((BestFirstHeuristic<PlanStep>)plannerMaker.newInstanceOf(planners.getSelectedItem().toString()));
+				BestFirstSearcher<PlanStep> searcher = new BestFirstSearcher<>((BestFirstHeuristic<PlanStep>)plannerMaker.newInstanceOf(planners.getSelectedItem().toString()));
+				searcher.setTimed(true);
+				Planner p = new BestFirstPlanner(searcher);
 				Domain d = new Domain(getDomainFile());
 				Problem prob = new Problem(getProblemFile());
-				long start = System.currentTimeMillis();
-				Plan plan = p.makePlan(d, prob);
-				long duration = System.currentTimeMillis() - start;
-				if (plan.isPlanValid(prob)) {
-					planText.setText(plan.toString());
-					numNodes.setText(Integer.toString(p.getNumNodes()));
-					depth.setText(Integer.toString(p.getMaxDepth()));
-					showDouble(p.getBranchingFactor(), bStar);
-					solutionLength.setText(Integer.toString(plan.length()));
-					time.setText(Long.toString(duration));
-					showDouble((double)duration / p.getNumNodes(), timePerStep);
-				} else {
-					planText.setText("No plan found");
-				}
+				MetricsSampler sampler = new MetricsSampler(searcher, 250, 
+						metrics -> SwingUtilities.invokeLater(() -> showMetrics(metrics)));
+				makePlan.setEnabled(false);
+				sampler.start();
+				new Thread(() -> {
+					try {
+						long start = System.currentTimeMillis();
+						Plan plan = p.makePlan(d, prob);
+						long duration = System.currentTimeMillis() - start;
+						SwingUtilities.invokeLater(() -> showPlan(p, plan, prob, duration, searcher.getMetrics()));
+					} catch (Exception | OutOfMemoryError e) {
+						SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(PlanViewer.this, "Planning failed: " + e));
+					} finally {
+						sampler.stop();
+						SwingUtilities.invokeLater(() -> makePlan.setEnabled(true));
+					}
+				}).start();
 				
 			} catch (InstantiationException e) {
 				JOptionPane.showMessageDialog(PlanViewer.this, "Could not instantiate a " + planners.getSelectedItem());
@@ -255,6 +277,22 @@ public class PlanViewer extends JFrame {
 		}
 	}
 	
+	private void showPlan(Planner p, Plan plan, Problem prob, long duration, SearchMetrics metrics) {
+		makePlan.setEnabled(true);
+		showMetrics(metrics);
+		if (plan.isPlanValid(prob)) {
+			planText.setText(plan.toString());
+			numNodes.setText(Integer.toString(p.getNumNodes()));
+			depth.setText(Integer.toString(p.getMaxDepth()));
+			showDouble(p.getBranchingFactor(), bStar);
+			solutionLength.setText(Integer.toString(plan.length()));
+			time.setText(Long.toString(duration));
+			showDouble((double)duration / p.getNumNodes(), timePerStep);
+		} else {
+			planText.setText("No plan found");
+		}
+	}
+	
 	private class PlanChecker implements ActionListener {
 
 		@Override
@@ -0,0 +1,180 @@
+package search.core;
+import java.util.*;
+
+// Anytime Repairing A* (ARA*).  It starts with a weighted search, f = g +
+// w * h, which finds some solution quickly, then repeatedly lowers w and
+// repairs the search: the open list is re-sorted under the new weight,
+// states whose cost dropped after they were expanded are put back, and
+// all other g-values are kept.  Every improved solution is passed to the
+// registered listeners.  solve() stops once a search with w = 1 completes
+// (the solution is then optimal for an admissible h) or the time limit
+// runs out, and keeps the best solution found.
+public class AnytimeSearcher<T extends BestFirstObject<T>> extends BasicSearcher<T> {
+    public final static double DEFAULT_INITIAL_WEIGHT = 5.0;
+    public final static double DEFAULT_WEIGHT_STEP = 1.0;
+    
+    private BestFirstHeuristic<T> h;
+    private double initialWeight, weightStep;
+    private long timeLimit;
+    private ArrayList<SolutionListener<T>> listeners;
+    
+    private double weight, bound;
+    private long numCreated, deadline;
+    private Map<T,SearchNode<T>> bestPaths;
+    private Set<T> closed;
+    private ArrayList<SearchNode<T>> inconsistent;
+    private SearchNode<T> incumbent;
+    
+    public AnytimeSearcher(BestFirstHeuristic<T> bfh) {
+        this(bfh, DEFAULT_INITIAL_WEIGHT, DEFAULT_WEIGHT_STEP);
+    }
+    
+    // Pre: initialWeight >= 1; weightStep > 0
+    public AnytimeSearcher(BestFirstHeuristic<T> bfh, double initialWeight, double weightStep) {
+        if (initialWeight < 1 || weightStep <= 0) {
+            throw new IllegalArgumentException("Bad weight schedule " + initialWeight + ", " + weightStep);
+        }
+        h = bfh;
+        this.initialWeight = initialWeight;
+        this.weightStep = weightStep;
+        timeLimit = 0;
+        listeners = new ArrayList<SolutionListener<T>>();
+    }
+    
+    public void addListener(SolutionListener<T> listener) {listeners.add(listener);}
+    
+    // Pre: millis >= 0
+    // Post: solve() returns after about millis milliseconds with the best
+    //       solution found so far; 0 means no limit
+    public void setTimeLimit(long millis) {timeLimit = millis;}
+    
+    // Pre: success()
+    // Post: Returns the factor by which the solution may exceed an optimal
+    //       one, if the heuristic is admissible
+    public double getSuboptimalityBound() {return bound;}
+    
+    @Override
+    protected void reset() {
+        super.reset();
+        numCreated = 0;
+        bound = Double.POSITIVE_INFINITY;
+        incumbent = null;
+    }
+    
+    public void solve(T start, T target) {
+        reset();
+        deadline = (timeLimit == 0) ? Long.MAX_VALUE : System.currentTimeMillis() + timeLimit;
+        bestPaths = new HashMap<T,SearchNode<T>>();
+        inconsistent = new ArrayList<SearchNode<T>>();
+        weight = initialWeight;
+        
+        SearchNode<T> root = new SearchNode<T>(null, start, h.getDistance(start, target), weight, numCreated++);
+        bestPaths.put(start, root);
+        reachedDepth(0);
+        OpenList<T> openList = makeOpenList();
+        openList.add(root);
+        
+        while (improvePath(openList, target) && weight > 1) {
+            weight = Math.max(1.0, weight - weightStep);
+            openList = repair(openList);
+        }
+        
+        bestPaths = null;
+        closed = null;
+        inconsistent = null;
+    }
+    
+    private OpenList<T> makeOpenList() {
+        if (weight == Math.rint(weight)) {
+            return new BucketOpenList<T>(TieBreaker.LOWEST_H);
+        } else {
+            return new HeapOpenList<T>(TieBreaker.LOWEST_H);
+        }
+    }
+    
+    // Post: Expands nodes until none on openList can lead to a solution
+    //       shorter than the incumbent; returns false if the time limit
+    //       ran out first
+    private boolean improvePath(OpenList<T> openList, T target) {
+        closed = new HashSet<T>();
+        SearchNode<T> before = incumbent;
+        while (!openList.isEmpty() && (incumbent == null || incumbent.getDepth() > openList.peek().getF())) {
+            if (System.currentTimeMillis() > deadline) {
+                publish(before, false);
+                return false;
+            }
+            SearchNode<T> best = openList.poll();
+            if (bestPaths.get(best.getObject()) != best) {continue;}
+            if (best.getObject().achieves(target)) {
+                if (incumbent == null || best.getDepth() < incumbent.getDepth()) {
+                    incumbent = best;
+                }
+                continue;
+            }
+            closed.add(best.getObject());
+            for (T succ: best.getObject().getSuccessors()) {
+                countNode();
+                int cost = best.getObject().getCost(succ);
+                SearchNode<T> previous = bestPaths.get(succ);
+                if (previous != null && previous.getDepth() <= best.getDepth() + cost) {continue;}
+                int hValue = (previous == null) ? h.getDistance(succ, target) : previous.getH();
+                SearchNode<T> node = new SearchNode<T>(best, succ, cost, hValue, weight, numCreated++);
+                reachedDepth(node.getDepth());
+                bestPaths.put(succ, node);
+                if (closed.contains(succ)) {
+                    inconsistent.add(node);
+                } else {
+                    openList.add(node);
+                }
+            }
+        }
+        publish(before, true);
+        return true;
+    }
+    
+    // Post: Returns a new open list holding every current node of openList
+    //       and of the inconsistent list, prioritized under the new weight
+    private OpenList<T> repair(OpenList<T> openList) {
+        OpenList<T> result = makeOpenList();
+        while (!openList.isEmpty()) {
+            requeue(openList.poll(), result);
+        }
+        for (SearchNode<T> node: inconsistent) {
+            requeue(node, result);
+        }
+        inconsistent.clear();
+        return result;
+    }
+    
+    private void requeue(SearchNode<T> node, OpenList<T> openList) {
+        if (bestPaths.get(node.getObject()) == node) {
+            SearchNode<T> copy = node.reweighted(weight, numCreated++);
+            bestPaths.put(node.getObject(), copy);
+            openList.add(copy);
+        }
+    }
+    
+    // Post: If the incumbent is better than before, makes it the solution
+    //       and tells the listeners.  Only a search that ran to completion
+    //       tightens the bound to its weight.
+    private void publish(SearchNode<T> before, boolean completed) {
+        if (incumbent == null) {return;}
+        if (completed) {
+            bound = Math.min(bound, weight);
+        }
+        if (incumbent != before) {
+            setSolution(incumbent);
+            for (SolutionListener<T> listener: listeners) {
+                listener.solutionImproved(Collections.unmodifiableList(solutionPath()), bound);
+            }
+        }
+    }
+    
+    private List<T> solutionPath() {
+        ArrayList<T> path = new ArrayList<T>(numSteps());
+        for (int i = 0; i < numSteps(); ++i) {
+            path.add(get(i));
+        }
+        return path;
+    }
+}
@@ -0,0 +1,89 @@
+package search.core;
+import java.util.*;
+
+// Solution and node-count bookkeeping shared by every Searcher.
+abstract public class BasicSearcher<T extends BestFirstObject<T>> implements Searcher<T> {
+    private ArrayList<T> solution;
+    private int depth, numNodes;
+    private boolean solutionFound;
+    
+    public BasicSearcher() {
+        reset();
+    }
+    
+    protected void reset() {
+        solution = new ArrayList<T>();
+        depth = -1;
+        numNodes = 0;
+        solutionFound = false;
+    }
+    
+    // Post: Counts one more generated node
+    protected void countNode() {numNodes++;}
+    
+    // Post: Counts howMany more generated nodes
+    protected void countNodes(int howMany) {numNodes += howMany;}
+    
+    // Post: Records that the search reached the given depth
+    protected void reachedDepth(int d) {depth = Math.max(depth, d);}
+    
+    // Pre: path.get(0) is the start; the last element achieves the target
+    // Post: success() is true and the steps are those of path
+    protected void setSolution(List<T> path) {
+        solution = new ArrayList<T>(path);
+        solutionFound = true;
+    }
+    
+    // Post: Sets the solution to the path from the root down to goal
+    void setSolution(SearchNode<T> goal) {
+        ArrayList<T> path = new ArrayList<T>();
+        while (goal != null) {
+            path.add(goal.getObject());
+            goal = goal.getParent();
+        }
+        Collections.reverse(path);
+        setSolution(path);
+    }
+    
+    // Pre: 0 <= n <= getMaxStep(); success()
+    public T get(int n) {
+        return solution.get(n);
+    }
+    
+    public boolean success() {return solutionFound;}
+
+    // Pre: success()
+    public int numSteps() {return solution.size();}
+    
+    // Pre: success()
+    public int getMaxDepth() {return depth;}
+    
+    // Pre: success()
+    public int getNumNodes() {return numNodes;}
+    
+    // Pre: success()
+    public double getBranchingFactor(double maxError) {
+        double lo = 0;
+        double hi = (double)numNodes / (double)depth;
+        double error = 0;
+        double bGuess = 0;
+        do {
+            bGuess = (lo + hi) / 2;
+            error = computeError(bGuess);
+            if (error > 0) {
+                hi = bGuess;
+            } else {
+                lo = bGuess;
+            }
+        } while (Math.abs(error) > maxError);
+        return bGuess;
+    }
+    
+    private double computeError(double bGuess) {
+        double sum = 0;
+        for (int d = 1; d <= depth; ++d) {
+            sum += Math.pow(bGuess, d);
+        }
+        return sum - numNodes;
+    }
+}
@@ -6,6 +6,14 @@ public interface BestFirstObject<T extends BestFirstObject<T>> {
     // Post: Returns all objects that can be generated from this with one move
     public ArrayList<T> getSuccessors();
 
+    // Pre: successor was returned by getSuccessors()
+    // Post: Returns the cost of the move from this to successor
+    default int getCost(T successor) {return 1;}
+
+    // Post: Returns false only if no sequence of moves from this can
+    //       achieve goal; BestFirstSearcher then gives up without searching
+    default boolean mayReach(T goal) {return true;}
+
     public int hashCode();
 
     public boolean equals(Object other);
@@ -1,138 +1,271 @@
 package search.core;
 import java.util.*;
 
-public class BestFirstSearcher<T extends BestFirstObject<T>> {
-    private ArrayList<T> solution;
-    private int depth, numNodes;
+public class BestFirstSearcher<T extends BestFirstObject<T>> extends BasicSearcher<T> {
+    // Rough heap cost of one generated node: the SearchNode, its hash
+    // table entry and its share of the open list and table arrays
+    public final static long BYTES_PER_NODE = 112;
+    
+    private int numDuplicates, numReopened, numPruned;
+    private long numCreated, numExpanded;
+    private long nodeLimit, timeLimit, memoryLimit;
+    private volatile boolean cancelled;
+    private SearchStatus status;
+    private SearchNode<T> bestPartial;
     private BestFirstHeuristic<T> h;
-    private boolean solutionFound;
+    private TieBreaker tieBreaker;
+    private boolean bucketsAllowed;
+    private double weight;
+    
+    private ArrayList<SearchListener<T>> listeners;
+    private boolean timed;
+    private long startNanos, successorNanos, heuristicNanos;
+    private int openPeak, numF;
+    private long[] fTimes;
+    private double[] fValues;
+    private volatile SearchMetrics latest;
     
     private final static boolean debug = false;
     
     public BestFirstSearcher(BestFirstHeuristic<T> bfh) {
+        this(bfh, TieBreaker.LOWEST_H);
+    }
+    
+    public BestFirstSearcher(BestFirstHeuristic<T> bfh, TieBreaker tieBreaker) {
         h = bfh; 
-        reset();
+        this.tieBreaker = tieBreaker;
+        bucketsAllowed = true;
+        weight = 1.0;
+        status = SearchStatus.EXHAUSTED;
+        listeners = new ArrayList<SearchListener<T>>();
+    }
+    
+    public void addListener(SearchListener<T> listener) {listeners.add(listener);}
+    
+    // Post: If timed, solve() measures the time spent in getSuccessors()
+    //       and getDistance(); this costs two clock reads per call
+    public void setTimed(boolean timed) {this.timed = timed;}
+    
+    // Post: Returns the metrics of the solve() in progress, as of at most
+    //       256 expansions ago, or of the last one if none is running;
+    //       safe to call from any thread
+    public SearchMetrics getMetrics() {return latest;}
+    
+    // Pre: limit >= 0
+    // Post: solve() stops after expanding limit nodes; 0 means no limit
+    public void setNodeLimit(long limit) {nodeLimit = limit;}
+    
+    // Pre: millis >= 0
+    // Post: solve() stops after about millis milliseconds; 0 means no limit
+    public void setTimeLimit(long millis) {timeLimit = millis;}
+    
+    // Pre: bytes >= 0
+    // Post: solve() stops once its open list and table are estimated to
+    //       hold more than bytes, at BYTES_PER_NODE per generated node;
+    //       0 means no limit
+    public void setMemoryLimit(long bytes) {memoryLimit = bytes;}
+    
+    // Post: A solve() in progress on any thread stops at its next
+    //       expansion with status CANCELLED; a call while none is running
+    //       is forgotten when the next solve() starts
+    public void cancel() {cancelled = true;}
+    
+    // Post: Returns why the last solve() stopped
+    public SearchStatus getStatus() {return status;}
+    
+    // Post: Returns the generated state with the lowest h in the last
+    //       solve(), the earliest one on ties; null before any solve()
+    public T getBestPartial() {
+        return bestPartial == null ? null : bestPartial.getObject();
+    }
+    
+    // Post: Returns the path from the start to getBestPartial()
+    public List<T> getBestPartialPath() {
+        ArrayList<T> path = new ArrayList<T>();
+        for (SearchNode<T> n = bestPartial; n != null; n = n.getParent()) {
+            path.add(n.getObject());
+        }
+        Collections.reverse(path);
+        return path;
+    }
+    
+    // Post: Returns how many nodes the last solve() expanded
+    public long getNumExpanded() {return numExpanded;}
+    
+    public TieBreaker getTieBreaker() {return tieBreaker;}
+    
+    public void setTieBreaker(TieBreaker tieBreaker) {this.tieBreaker = tieBreaker;}
+    
+    public double getWeight() {return weight;}
+    
+    // Pre: weight >= 1
+    // Post: solve() orders nodes by f = g + weight * h; a weight above 1
+    //       trades optimality (solutions cost at most weight times the
+    //       optimum if h is admissible) for fewer expansions
+    public void setWeight(double weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Weight must be at least 1, not " + weight);
+        }
+        this.weight = weight;
+    }
+    
+    // Post: If allowed, solve() uses a bucket queue whenever every f-value
+    //       is integral; otherwise it always uses a binary heap
+    public void setBucketsAllowed(boolean allowed) {bucketsAllowed = allowed;}
+    
+    public boolean usesBuckets() {return bucketsAllowed && integralF();}
+    
+    // Post: Returns true if g + weight * h is always an integer.  Move
+    //       costs and heuristics are ints, so this holds whenever the
+    //       weight is integral.
+    private boolean integralF() {return weight == Math.rint(weight);}
+    
+    private OpenList<T> makeOpenList() {
+        if (usesBuckets()) {
+            return new BucketOpenList<T>(tieBreaker);
+        } else {
+            return new HeapOpenList<T>(tieBreaker);
+        }
     }
     
     public void solve(T start, T target) {
         reset();
+        long deadline = (timeLimit == 0) ? Long.MAX_VALUE : System.currentTimeMillis() + timeLimit;
         
-        Set<T> visited = new HashSet<T>();
-        SearchNode best = new SearchNode(null, start, target);
-        Queue<SearchNode> openList = new PriorityQueue<>();
+        Map<T,SearchNode<T>> bestPaths = new HashMap<T,SearchNode<T>>();
+        SearchNode<T> best = makeNode(null, start, 0, target);
+        bestPaths.put(start, best);
+        OpenList<T> openList = makeOpenList();
         openList.add(best);
-        solutionFound = false;
-        while (openList.size() > 0 && !solutionFound) {
+        openPeak = 1;
+        status = SearchStatus.EXHAUSTED;
+        boolean reachable = start.mayReach(target);
+        while (reachable && !openList.isEmpty() && status == SearchStatus.EXHAUSTED) {
             best = openList.poll();
             if (debug) {System.out.println("best: " + best.getObject());}
-            if (!visited.contains(best.getObject())) {
-                visited.add(best.getObject());
+            if (bestPaths.get(best.getObject()) == best) {
+                if (numF == 0 || best.getF() > fValues[numF - 1]) {
+                    fIncreased(best.getF());
+                }
                 if (best.getObject().achieves(target)) {
-                    solutionFound = true;
+                    status = SearchStatus.SOLVED;
+                } else if (cancelled) {
+                    status = SearchStatus.CANCELLED;
+                } else if (overBudget(deadline)) {
+                    status = SearchStatus.BUDGET_EXCEEDED;
                 } else {
-                	addSuccessors(best, openList, target);
+                    best.closed = true;
+                    if ((numExpanded & 0xFF) == 0) {latest = makeMetrics();}
+                    numExpanded++;
+                    for (SearchListener<T> listener: listeners) {
+                        listener.nodeExpanded(best.getObject(), best.getDepth(), best.getH());
+                    }
+                	addSuccessors(best, openList, bestPaths, target);
+                	openPeak = Math.max(openPeak, openList.size());
                 }
             }
         }
+        latest = makeMetrics();
+        for (SearchListener<T> listener: listeners) {
+            listener.searchFinished(status, latest);
+        }
         
-        if (solutionFound) {
-            reconstructMoves(best);
+        if (status == SearchStatus.SOLVED) {
+            setSolution(best);
         }
     }
     
-    private void addSuccessors(SearchNode best, Queue<SearchNode> openList, T target) {
-        for (T p: best.getObject().getSuccessors()) {
-            numNodes++;
-            SearchNode newNode = new SearchNode(best, p, target);
-            depth = Math.max(newNode.getDepth(), depth);
+    // Post: Returns true if expanding one more node would exceed a limit;
+    //       the clock is read only every 256 expansions
+    private boolean overBudget(long deadline) {
+        return (nodeLimit > 0 && numExpanded >= nodeLimit)
+            || (memoryLimit > 0 && numCreated * BYTES_PER_NODE > memoryLimit)
+            || ((numExpanded & 0xFF) == 0 && System.currentTimeMillis() > deadline);
+    }
+    
+    // Post: Every successor of best that is reached more cheaply than
+    //       ever before is recorded in bestPaths and added to openList; a
+    //       node it replaces is skipped when it comes off openList, and a
+    //       replaced closed node is thereby reopened
+    private void addSuccessors(SearchNode<T> best, OpenList<T> openList, Map<T,SearchNode<T>> bestPaths, T target) {
+        long before = timed ? System.nanoTime() : 0;
+        Iterable<T> successors = best.getObject().getSuccessors();
+        if (timed) {successorNanos += System.nanoTime() - before;}
+        for (T p: successors) {
+            countNode();
+            int cost = best.getObject().getCost(p);
+            SearchNode<T> previous = bestPaths.get(p);
+            if (previous != null) {
+                numDuplicates++;
+                if (previous.getDepth() <= best.getDepth() + cost) {
+                    numPruned++;
+                    continue;
+                }
+                if (previous.closed) {numReopened++;}
+            }
+            SearchNode<T> newNode = makeNode(best, p, cost, target);
+            reachedDepth(newNode.getDepth());
+            bestPaths.put(p, newNode);
             openList.add(newNode);
         }    	
     }
     
-    private void reconstructMoves(SearchNode searcher) { 
-        while (searcher != null) {
-            solution.add(searcher.getObject());
-            searcher = searcher.getParent();
-        }
-        
-        for (int i = 0; i < solution.size() / 2; ++i) {
-            T temp = solution.get(i);
-            int other = solution.size() - i - 1;
-            solution.set(i, solution.get(other));
-            solution.set(other, temp);
+    private SearchNode<T> makeNode(SearchNode<T> parent, T obj, int cost, T target) {
+        long before = timed ? System.nanoTime() : 0;
+        int dist = h.getDistance(obj, target);
+        if (timed) {heuristicNanos += System.nanoTime() - before;}
+        SearchNode<T> node = new SearchNode<T>(parent, obj, cost, dist, weight, numCreated++);
+        if (bestPartial == null || node.getH() < bestPartial.getH()) {
+            bestPartial = node;
         }
+        return node;
     }
     
-    private class SearchNode implements Comparable<SearchNode> {
-        private int depth;
-        private T node;
-        private SearchNode parent;
-        private T goal;
-        public SearchNode(SearchNode parent, T pNode, T goal) {
-            node = pNode;
-            this.parent = parent;
-            depth = (parent == null) ? 0 : parent.depth + 1;
-            this.goal = goal;
+    @Override
+    protected void reset() {
+        super.reset();
+        cancelled = false;
+        numCreated = numExpanded = 0;
+        bestPartial = null;
+        numDuplicates = numReopened = numPruned = 0;
+        startNanos = System.nanoTime();
+        successorNanos = heuristicNanos = 0;
+        openPeak = numF = 0;
+        fTimes = new long[16];
+        fValues = new double[16];
+        latest = makeMetrics();
+    }
+    
+    // Post: Records that the expanded f-value rose to f and tells the
+    //       listeners
+    private void fIncreased(double f) {
+        if (numF == fValues.length) {
+            fTimes = Arrays.copyOf(fTimes, 2 * numF);
+            fValues = Arrays.copyOf(fValues, 2 * numF);
         }
-        
-        public int getDepth() {return depth;}
-        
-        public T getObject() {return node;}
-        
-        public SearchNode getParent() {return parent;}
-
-        @Override
-        public int compareTo(SearchNode that) {
-            return Integer.compare(h.getDistance(this.node, goal)+this.getDepth(),h.getDistance(that.node, goal)+that.getDepth());
+        fTimes[numF] = System.nanoTime() - startNanos;
+        fValues[numF++] = f;
+        if (!listeners.isEmpty()) {
+            SearchMetrics m = makeMetrics();
+            for (SearchListener<T> listener: listeners) {
+                listener.fIncreased(f, m);
+            }
         }
     }
     
-    private void reset() {
-        solution = new ArrayList<T>();
-        depth = -1;
-        numNodes = 0;
-        solutionFound = false;
+    private SearchMetrics makeMetrics() {
+        return new SearchMetrics(numExpanded, getNumNodes(), numDuplicates, openPeak, successorNanos, 
+                heuristicNanos, System.nanoTime() - startNanos, fTimes, fValues, numF);
     }
     
-    // Pre: 0 <= n <= getMaxStep(); success()
-    public T get(int n) {
-        return solution.get(n);
-    }
+    // Post: Returns how many generated nodes were states already seen
+    public int getNumDuplicates() {return numDuplicates;}
     
-    public boolean success() {return solutionFound;}
-
-    // Pre: success()
-    public int numSteps() {return solution.size();}
-    
-    // Pre: success()
-    public int getMaxDepth() {return depth;}
-    
-    // Pre: success()
-    public int getNumNodes() {return numNodes;}
-    
-    // Pre: success()
-    public double getBranchingFactor(double maxError) {
-        double lo = 0;
-        double hi = (double)numNodes / (double)depth;
-        double error = 0;
-        double bGuess = 0;
-        do {
-            bGuess = (lo + hi) / 2;
-            error = computeError(bGuess);
-            if (error > 0) {
-                hi = bGuess;
-            } else {
-                lo = bGuess;
-            }
-        } while (Math.abs(error) > maxError);
-        return bGuess;
-    }
+    // Post: Returns how many expanded states were put back on the open
+    //       list because a cheaper path to them was found
+    public int getNumReopened() {return numReopened;}
     
-    private double computeError(double bGuess) {
-        double sum = 0;
-        for (int d = 1; d <= depth; ++d) {
-            sum += Math.pow(bGuess, d);
-        }
-        return sum - numNodes;
-    }
+    // Post: Returns how many duplicates were dropped without being queued
+    //       because they were no cheaper than a known path
+    public int getNumPruned() {return numPruned;}
 }
@@ -0,0 +1,127 @@
+package search.core;
+import java.util.*;
+
+// Bidirectional A* with front-to-end heuristics: a forward search from the
+// start guided by h(n, target) and a backward search from the target
+// guided by h(n, start), each expanding the side with the smaller open
+// list.  Whenever one side generates a state the other side has reached,
+// the joined path is a candidate solution.  The search stops once the
+// cheapest candidate costs no more than the larger of the two smallest
+// f-values, which no unexplored path can beat if h is admissible.
+//
+// Pre: Every move can be undone: b is a successor of a exactly when a is a
+//      successor of b, at the same getCost() both ways.  The target is a
+//      complete state, not just a goal condition, and equals() identifies
+//      states met from either side.
+public class BidirectionalSearcher<T extends BestFirstObject<T>> extends BasicSearcher<T> {
+    private BestFirstHeuristic<T> h;
+    private TieBreaker tieBreaker;
+    private int forwardExpansions, backwardExpansions;
+    
+    private long numCreated;
+    private int bestCost;
+    private SearchNode<T> forwardMeet, backwardMeet;
+    
+    public BidirectionalSearcher(BestFirstHeuristic<T> bfh) {
+        this(bfh, TieBreaker.LOWEST_H);
+    }
+    
+    public BidirectionalSearcher(BestFirstHeuristic<T> bfh, TieBreaker tieBreaker) {
+        h = bfh;
+        this.tieBreaker = tieBreaker;
+    }
+    
+    @Override
+    protected void reset() {
+        super.reset();
+        forwardExpansions = backwardExpansions = 0;
+        numCreated = 0;
+        bestCost = Integer.MAX_VALUE;
+        forwardMeet = backwardMeet = null;
+    }
+    
+    public int getForwardExpansions() {return forwardExpansions;}
+    
+    public int getBackwardExpansions() {return backwardExpansions;}
+    
+    public void solve(T start, T target) {
+        reset();
+        Side forward = new Side(start, target);
+        Side backward = new Side(target, start);
+        reachedDepth(0);
+        if (start.equals(target)) {
+            setSolution(forward.bestPaths.get(start));
+            return;
+        }
+        
+        while (!forward.openList.isEmpty() && !backward.openList.isEmpty()) {
+            double lowerBound = Math.max(forward.openList.peek().getF(), backward.openList.peek().getF());
+            if (bestCost <= lowerBound) {break;}
+            if (forward.openList.size() <= backward.openList.size()) {
+                forward.expandBest(backward, true);
+                forwardExpansions++;
+            } else {
+                backward.expandBest(forward, false);
+                backwardExpansions++;
+            }
+        }
+        
+        if (forwardMeet != null) {
+            setSolution(join(forwardMeet, backwardMeet));
+        }
+    }
+    
+    // Post: Returns the states from the forward root to forwardEnd followed
+    //       by those from backwardEnd's parent back to the backward root
+    private List<T> join(SearchNode<T> forwardEnd, SearchNode<T> backwardEnd) {
+        ArrayList<T> path = new ArrayList<T>();
+        for (SearchNode<T> n = forwardEnd; n != null; n = n.getParent()) {
+            path.add(n.getObject());
+        }
+        Collections.reverse(path);
+        for (SearchNode<T> n = backwardEnd.getParent(); n != null; n = n.getParent()) {
+            path.add(n.getObject());
+        }
+        return path;
+    }
+    
+    private class Side {
+        private T towards;
+        private OpenList<T> openList;
+        private Map<T,SearchNode<T>> bestPaths;
+        
+        Side(T root, T towards) {
+            this.towards = towards;
+            openList = new BucketOpenList<T>(tieBreaker);
+            bestPaths = new HashMap<T,SearchNode<T>>();
+            SearchNode<T> node = new SearchNode<T>(null, root, h.getDistance(root, towards), numCreated++);
+            bestPaths.put(root, node);
+            openList.add(node);
+        }
+        
+        // Post: Expands the best open node of this side, recording any
+        //       cheaper path through a state the other side has reached
+        void expandBest(Side other, boolean isForward) {
+            SearchNode<T> best = openList.poll();
+            if (bestPaths.get(best.getObject()) != best) {return;}
+            best.closed = true;
+            for (T succ: best.getObject().getSuccessors()) {
+                countNode();
+                int cost = best.getObject().getCost(succ);
+                SearchNode<T> previous = bestPaths.get(succ);
+                if (previous != null && previous.getDepth() <= best.getDepth() + cost) {continue;}
+                SearchNode<T> node = new SearchNode<T>(best, succ, cost, h.getDistance(succ, towards), 1.0, numCreated++);
+                reachedDepth(node.getDepth());
+                bestPaths.put(succ, node);
+                openList.add(node);
+                
+                SearchNode<T> meet = other.bestPaths.get(succ);
+                if (meet != null && node.getDepth() + meet.getDepth() < bestCost) {
+                    bestCost = node.getDepth() + meet.getDepth();
+                    forwardMeet = isForward ? node : meet;
+                    backwardMeet = isForward ? meet : node;
+                }
+            }
+        }
+    }
+}
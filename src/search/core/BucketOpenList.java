@@ -0,0 +1,164 @@
+package search.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// A bucket queue for integral f-values in [0, maxF).  Each f has its own
+// bucket and a pointer tracks the lowest non-empty one, so add and poll
+// are O(1) amortized instead of O(log n).  Buckets are chains linked
+// through SearchNode.next, so queueing a node allocates nothing.  FIFO and
+// LIFO use one chain per f; LOWEST_H and HIGHEST_G (equivalent once f is
+// fixed) keep one FIFO chain per h.  Nodes whose f is not integral or out
+// of range go to a heap, so the list accepts any node.
+class BucketOpenList<T extends BestFirstObject<T>> implements OpenList<T> {
+    public final static int DEFAULT_MAX_F = 1 << 22;
+
+    private TieBreaker tieBreaker;
+    private boolean byH;
+    private int maxF;
+    private ArrayList<Bucket> buckets;
+    private int minF;
+    private int size;
+    private HeapOpenList<T> overflow;
+
+    BucketOpenList(TieBreaker tieBreaker) {
+        this(tieBreaker, DEFAULT_MAX_F);
+    }
+
+    BucketOpenList(TieBreaker tieBreaker, int maxF) {
+        this.tieBreaker = tieBreaker;
+        this.byH = tieBreaker == TieBreaker.LOWEST_H || tieBreaker == TieBreaker.HIGHEST_G;
+        this.maxF = maxF;
+        buckets = new ArrayList<Bucket>();
+        minF = 0;
+        size = 0;
+        overflow = new HeapOpenList<T>(tieBreaker);
+    }
+
+    @Override
+    public void add(SearchNode<T> node) {
+        double f = node.getF();
+        if (f < 0 || f >= maxF || f != Math.rint(f) || node.getH() < 0) {
+            overflow.add(node);
+            return;
+        }
+        int key = (int)f;
+        while (buckets.size() <= key) {
+            buckets.add(null);
+        }
+        Bucket b = buckets.get(key);
+        if (b == null) {
+            b = new Bucket();
+            buckets.set(key, b);
+        }
+        b.add(node);
+        size++;
+        if (key < minF) {minF = key;}
+    }
+
+    @Override
+    public SearchNode<T> poll() {
+        Bucket b = lowestBucket();
+        if (b == null) {
+            return overflow.poll();
+        } else if (!overflow.isEmpty() && tieBreaker.order(overflow.peek(), b.peek()) < 0) {
+            return overflow.poll();
+        } else {
+            size--;
+            return b.poll();
+        }
+    }
+
+    @Override
+    public SearchNode<T> peek() {
+        Bucket b = lowestBucket();
+        if (b == null) {
+            return overflow.peek();
+        } else if (!overflow.isEmpty() && tieBreaker.order(overflow.peek(), b.peek()) < 0) {
+            return overflow.peek();
+        } else {
+            return b.peek();
+        }
+    }
+
+    // Post: Advances minF to the first non-empty bucket and returns it, or
+    //       returns null if every bucket is empty
+    private Bucket lowestBucket() {
+        if (size == 0) {return null;}
+        while (buckets.get(minF) == null || buckets.get(minF).isEmpty()) {
+            minF++;
+        }
+        return buckets.get(minF);
+    }
+
+    @Override
+    public boolean isEmpty() {return size == 0 && overflow.isEmpty();}
+
+    @Override
+    public int size() {return size + overflow.size();}
+
+    @SuppressWarnings("unchecked")
+    private SearchNode<T>[] newChains(int n) {
+        return (SearchNode<T>[]) new SearchNode<?>[n];
+    }
+
+    // One chain per sub-key; the sub-key is h for LOWEST_H and HIGHEST_G
+    // and always 0 otherwise.
+    private class Bucket {
+        private SearchNode<T>[] heads, tails;
+        private int minKey, count;
+
+        Bucket() {
+            heads = newChains(1);
+            tails = newChains(1);
+            minKey = 0;
+            count = 0;
+        }
+
+        void add(SearchNode<T> node) {
+            int key = byH ? node.getH() : 0;
+            if (key >= heads.length) {
+                int capacity = Math.max(key + 1, heads.length * 2);
+                heads = Arrays.copyOf(heads, capacity);
+                tails = Arrays.copyOf(tails, capacity);
+            }
+            node.next = null;
+            if (heads[key] == null) {
+                heads[key] = tails[key] = node;
+            } else if (tieBreaker == TieBreaker.LIFO) {
+                node.next = heads[key];
+                heads[key] = node;
+            } else {
+                tails[key].next = node;
+                tails[key] = node;
+            }
+            if (count == 0 || key < minKey) {minKey = key;}
+            count++;
+        }
+
+        // Pre: !isEmpty()
+        SearchNode<T> peek() {
+            return heads[lowestKey()];
+        }
+
+        // Pre: !isEmpty()
+        SearchNode<T> poll() {
+            int key = lowestKey();
+            SearchNode<T> result = heads[key];
+            heads[key] = result.next;
+            if (heads[key] == null) {tails[key] = null;}
+            result.next = null;
+            count--;
+            return result;
+        }
+
+        private int lowestKey() {
+            while (heads[minKey] == null) {
+                minKey++;
+            }
+            return minKey;
+        }
+
+        boolean isEmpty() {return count == 0;}
+    }
+}
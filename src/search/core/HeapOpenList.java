@@ -0,0 +1,27 @@
+package search.core;
+
+import java.util.PriorityQueue;
+
+// A binary-heap open list; works for any f-values.
+class HeapOpenList<T extends BestFirstObject<T>> implements OpenList<T> {
+    private PriorityQueue<SearchNode<T>> heap;
+
+    HeapOpenList(TieBreaker tieBreaker) {
+        heap = new PriorityQueue<>(tieBreaker::order);
+    }
+
+    @Override
+    public void add(SearchNode<T> node) {heap.add(node);}
+
+    @Override
+    public SearchNode<T> poll() {return heap.poll();}
+
+    @Override
+    public SearchNode<T> peek() {return heap.peek();}
+
+    @Override
+    public boolean isEmpty() {return heap.isEmpty();}
+
+    @Override
+    public int size() {return heap.size();}
+}
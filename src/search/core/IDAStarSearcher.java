@@ -0,0 +1,135 @@
+package search.core;
+import java.util.*;
+
+// Iterative-deepening A*.  Each iteration is a depth-first search that
+// cuts off every node whose f = g + h exceeds a threshold; the next
+// threshold is the smallest f that was cut off.  Only the current path
+// and its pending successors are kept, so memory is linear in the
+// solution depth.  An optional transposition table of bounded size
+// remembers the cheapest g at which a state was searched in the current
+// iteration and skips later visits that are no cheaper.
+public class IDAStarSearcher<T extends BestFirstObject<T>> extends BasicSearcher<T> {
+    private BestFirstHeuristic<T> h;
+    private int tableSize;
+    private int iterations;
+    
+    public IDAStarSearcher(BestFirstHeuristic<T> bfh) {
+        this(bfh, 0);
+    }
+    
+    // Pre: tableSize >= 0
+    // Post: A tableSize of 0 disables the transposition table
+    public IDAStarSearcher(BestFirstHeuristic<T> bfh, int tableSize) {
+        h = bfh;
+        this.tableSize = tableSize;
+    }
+    
+    @Override
+    protected void reset() {
+        super.reset();
+        iterations = 0;
+    }
+    
+    // Post: Returns the number of depth-first iterations of the last solve
+    public int getNumIterations() {return iterations;}
+    
+    public void solve(T start, T target) {
+        reset();
+        long threshold = h.getDistance(start, target);
+        while (threshold != Long.MAX_VALUE && !success()) {
+            iterations++;
+            threshold = search(start, target, threshold);
+        }
+    }
+    
+    // Post: Searches depth-first below start, cutting off nodes with f >
+    //       threshold; sets the solution and returns threshold if one is
+    //       found, otherwise returns the smallest f that was cut off, or
+    //       Long.MAX_VALUE if nothing was
+    private long search(T start, T target, long threshold) {
+        Map<T,Integer> table = makeTable();
+        Set<T> onPath = new HashSet<T>();
+        ArrayList<Frame> path = new ArrayList<Frame>();
+        long nextThreshold = Long.MAX_VALUE;
+        
+        path.add(new Frame(start, 0));
+        onPath.add(start);
+        reachedDepth(0);
+        if (start.achieves(target)) {
+            setSolution(path);
+            return threshold;
+        }
+        
+        while (!path.isEmpty()) {
+            Frame top = path.get(path.size() - 1);
+            if (top.successors == null) {
+                top.successors = top.obj.getSuccessors();
+            }
+            if (top.next == top.successors.size()) {
+                onPath.remove(top.obj);
+                path.remove(path.size() - 1);
+                continue;
+            }
+            
+            T succ = top.successors.get(top.next++);
+            countNode();
+            int g = top.g + top.obj.getCost(succ);
+            if (onPath.contains(succ)) {continue;}
+            if (table != null) {
+                Integer seen = table.get(succ);
+                if (seen != null && seen <= g) {continue;}
+                table.put(succ, g);
+            }
+            
+            long f = (long)g + h.getDistance(succ, target);
+            if (f > threshold) {
+                nextThreshold = Math.min(nextThreshold, f);
+            } else if (succ.achieves(target)) {
+                path.add(new Frame(succ, g));
+                reachedDepth(g);
+                setSolution(path);
+                return threshold;
+            } else {
+                path.add(new Frame(succ, g));
+                onPath.add(succ);
+                reachedDepth(g);
+            }
+        }
+        return nextThreshold;
+    }
+    
+    private void setSolution(ArrayList<Frame> path) {
+        ArrayList<T> steps = new ArrayList<T>(path.size());
+        for (Frame frame: path) {
+            steps.add(frame.obj);
+        }
+        setSolution(steps);
+    }
+    
+    // Post: Returns a map that forgets its least recently used entry once
+    //       it holds more than tableSize, or null if tableSize is 0
+    @SuppressWarnings("serial")
+    private Map<T,Integer> makeTable() {
+        if (tableSize == 0) {return null;}
+        return new LinkedHashMap<T,Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<T,Integer> eldest) {
+                return size() > tableSize;
+            }
+        };
+    }
+    
+    private class Frame {
+        T obj;
+        int g;
+        ArrayList<T> successors;
+        int next;
+        
+        Frame(T obj, int g) {
+            this.obj = obj;
+            this.g = g;
+            successors = null;
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package search.core;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// Passes the metrics of a running BestFirstSearcher to a consumer at a
+// fixed rate, on a daemon thread of its own.  The searcher publishes a
+// fresh snapshot every few hundred expansions, so a sample can lag the
+// search by that much.
+public class MetricsSampler {
+    private BestFirstSearcher<?> searcher;
+    private long periodMillis;
+    private Consumer<SearchMetrics> consumer;
+    private ScheduledExecutorService timer;
+    
+    // Pre: periodMillis > 0
+    public MetricsSampler(BestFirstSearcher<?> searcher, long periodMillis, Consumer<SearchMetrics> consumer) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Period must be positive, not " + periodMillis);
+        }
+        this.searcher = searcher;
+        this.periodMillis = periodMillis;
+        this.consumer = consumer;
+    }
+    
+    // Post: Samples every periodMillis until stop() is called
+    public synchronized void start() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics sampler");
+                t.setDaemon(true);
+                return t;
+            });
+            timer.scheduleAtFixedRate(() -> consumer.accept(searcher.getMetrics()), 
+                                      0, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    // Post: No samples are taken after this returns, apart from one that
+    //       may already be running
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+}
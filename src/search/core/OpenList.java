@@ -0,0 +1,19 @@
+package search.core;
+
+// The frontier of a best-first search: hands back nodes in increasing
+// order of f, with ties broken by a TieBreaker.
+interface OpenList<T extends BestFirstObject<T>> {
+    public void add(SearchNode<T> node);
+
+    // Pre: !isEmpty()
+    // Post: Removes and returns the node that should be expanded next
+    public SearchNode<T> poll();
+
+    // Pre: !isEmpty()
+    // Post: Returns the node poll() would return, without removing it
+    public SearchNode<T> peek();
+
+    public boolean isEmpty();
+
+    public int size();
+}
@@ -0,0 +1,246 @@
+package search.core;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Hash-distributed parallel A* (HDA*).  Each worker thread owns the states
+// whose hash maps to it and keeps its own open list and best-path table.
+// A worker that generates a state owned by another worker posts it to that
+// worker's lock-free mailbox; the owner checks it for duplicates and only
+// then evaluates the heuristic.  
+//
+// Every node that is in a mailbox or an open list is counted in
+// outstanding; a successor is counted before its parent is discounted, so
+// the count reaches 0 only when no work is left anywhere.  Once a solution
+// is found, nodes with f no better than its cost are discarded, so with an
+// admissible heuristic the search ends exactly when the solution is proven
+// optimal.
+//
+// A worker with nothing to do yields for a few rounds and then parks
+// instead of spinning.  It marks itself idle and looks at its mailbox once
+// more before parking; a poster adds to the mailbox before it looks at
+// that mark, so one of the two always sees the other.  Whoever ends the
+// search unparks every worker.
+//
+// Pre: getSuccessors(), hashCode(), equals() and the heuristic may be
+//      called concurrently on distinct objects
+public class ParallelBestFirstSearcher<T extends BestFirstObject<T>> extends BasicSearcher<T> {
+    // Longest an idle worker sleeps between checks, should a wake-up
+    // ever be missed
+    private final static long MAX_PARK_NANOS = 10_000_000;
+    // Empty rounds an idle worker yields through before it parks, since
+    // work usually turns up again within a few
+    private final static int IDLE_YIELDS = 64;
+    
+    private BestFirstHeuristic<T> h;
+    private TieBreaker tieBreaker;
+    private int numThreads;
+    
+    private ArrayList<Worker> workers;
+    private AtomicLong outstanding;
+    private volatile SearchNode<T> incumbent;
+    private volatile Throwable failure;
+    
+    public ParallelBestFirstSearcher(BestFirstHeuristic<T> bfh) {
+        this(bfh, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public ParallelBestFirstSearcher(BestFirstHeuristic<T> bfh, int numThreads) {
+        this(bfh, numThreads, TieBreaker.LOWEST_H);
+    }
+    
+    // Pre: numThreads > 0
+    public ParallelBestFirstSearcher(BestFirstHeuristic<T> bfh, int numThreads, TieBreaker tieBreaker) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Need at least one thread, not " + numThreads);
+        }
+        h = bfh;
+        this.numThreads = numThreads;
+        this.tieBreaker = tieBreaker;
+    }
+    
+    public int getNumThreads() {return numThreads;}
+    
+    public void solve(T start, T target) {
+        reset();
+        workers = new ArrayList<Worker>(numThreads);
+        for (int i = 0; i < numThreads; ++i) {
+            workers.add(new Worker(i, target));
+        }
+        outstanding = new AtomicLong(1);
+        incumbent = null;
+        failure = null;
+        workers.get(owner(start)).mailbox.add(new Message<T>(null, start, 0));
+        
+        ArrayList<Thread> threads = new ArrayList<Thread>(numThreads);
+        for (Worker w: workers) {
+            Thread t = new Thread(w, "hda-worker-" + w.id);
+            w.thread = t;
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t: threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                failure = e;
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        for (Worker w: workers) {
+            countNodes(w.generated);
+            reachedDepth(w.maxDepth);
+        }
+        workers = null;
+        if (failure != null) {
+            throw new IllegalStateException("Parallel search failed", failure);
+        }
+        if (incumbent != null) {
+            setSolution(incumbent);
+        }
+    }
+    
+    private int owner(T obj) {
+        int hash = obj.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), numThreads);
+    }
+    
+    private synchronized void offerSolution(SearchNode<T> goal) {
+        if (incumbent == null || goal.getDepth() < incumbent.getDepth()) {
+            incumbent = goal;
+        }
+    }
+    
+    private boolean finished() {
+        return outstanding.get() == 0 || failure != null;
+    }
+    
+    // Post: Counts off one node, and wakes every worker if it was the last
+    private void discount() {
+        if (outstanding.decrementAndGet() == 0) {
+            wakeAll();
+        }
+    }
+    
+    private void wakeAll() {
+        for (Worker w: workers) {
+            LockSupport.unpark(w.thread);
+        }
+    }
+    
+    // A generated state on its way to its owner, with the cost of the move
+    // from parent to it
+    private static class Message<T extends BestFirstObject<T>> {
+        SearchNode<T> parent;
+        T obj;
+        int cost;
+        
+        Message(SearchNode<T> parent, T obj, int cost) {
+            this.parent = parent;
+            this.obj = obj;
+            this.cost = cost;
+        }
+    }
+    
+    private class Worker implements Runnable {
+        private int id;
+        private T target;
+        private Thread thread;
+        private volatile boolean idle;
+        private ConcurrentLinkedQueue<Message<T>> mailbox;
+        private OpenList<T> openList;
+        private Map<T,SearchNode<T>> bestPaths;
+        private long numCreated;
+        private int generated, maxDepth;
+        
+        Worker(int id, T target) {
+            this.id = id;
+            this.target = target;
+            mailbox = new ConcurrentLinkedQueue<Message<T>>();
+            openList = new BucketOpenList<T>(tieBreaker);
+            bestPaths = new HashMap<T,SearchNode<T>>();
+            numCreated = 0;
+            generated = 0;
+            maxDepth = 0;
+        }
+        
+        @Override
+        public void run() {
+            int idleRounds = 0;
+            try {
+                while (!finished()) {
+                    Message<T> m;
+                    while ((m = mailbox.poll()) != null) {
+                        receive(m);
+                    }
+                    if (!openList.isEmpty()) {
+                        idleRounds = 0;
+                        expandBest();
+                    } else if (++idleRounds <= IDLE_YIELDS) {
+                        Thread.yield();
+                    } else {
+                        idle = true;
+                        if (mailbox.isEmpty() && !finished()) {
+                            LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                        }
+                        idle = false;
+                    }
+                }
+            } catch (Throwable t) {
+                failure = t;
+                wakeAll();
+            }
+        }
+        
+        // Post: Hands m to this worker, waking it if it is idle
+        void post(Message<T> m) {
+            mailbox.add(m);
+            if (idle) {
+                LockSupport.unpark(thread);
+            }
+        }
+        
+        // Post: Queues m's state unless a path to it at least as cheap is
+        //       already known
+        private void receive(Message<T> m) {
+            int g = (m.parent == null) ? 0 : m.parent.getDepth() + m.cost;
+            SearchNode<T> previous = bestPaths.get(m.obj);
+            if (previous != null && previous.getDepth() <= g) {
+                discount();
+                return;
+            }
+            SearchNode<T> node = new SearchNode<T>(m.parent, m.obj, m.cost, h.getDistance(m.obj, target),
+                    1.0, numCreated++ * numThreads + id);
+            maxDepth = Math.max(maxDepth, node.getDepth());
+            bestPaths.put(m.obj, node);
+            openList.add(node);
+        }
+        
+        private void expandBest() {
+            SearchNode<T> best = openList.poll();
+            SearchNode<T> goal = incumbent;
+            if (bestPaths.get(best.getObject()) == best
+                    && (goal == null || best.getF() < goal.getDepth())) {
+                best.closed = true;
+                if (best.getObject().achieves(target)) {
+                    offerSolution(best);
+                } else {
+                    for (T succ: best.getObject().getSuccessors()) {
+                        generated++;
+                        outstanding.incrementAndGet();
+                        Message<T> m = new Message<T>(best, succ, best.getObject().getCost(succ));
+                        int dest = owner(succ);
+                        if (dest == id) {
+                            receive(m);
+                        } else {
+                            workers.get(dest).post(m);
+                        }
+                    }
+                }
+            }
+            discount();
+        }
+    }
+}
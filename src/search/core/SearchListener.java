@@ -0,0 +1,15 @@
+package search.core;
+
+// Receives events from a BestFirstSearcher.  Every method is called on
+// the searching thread, so implementations should be quick; the defaults
+// do nothing.
+public interface SearchListener<T extends BestFirstObject<T>> {
+    // Post: Called just before obj, reached at depth g, is expanded
+    default public void nodeExpanded(T obj, int g, int h) {}
+    
+    // Post: Called when the expanded f-value rises above every earlier one
+    default public void fIncreased(double f, SearchMetrics metrics) {}
+    
+    // Post: Called once when solve() returns
+    default public void searchFinished(SearchStatus status, SearchMetrics metrics) {}
+}
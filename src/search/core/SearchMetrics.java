@@ -0,0 +1,73 @@
+package search.core;
+import java.util.Arrays;
+
+// An immutable snapshot of the counters and timers of one search.  Times
+// are in nanoseconds since the search started.  The f-progression records
+// each time the f-value of the expanded nodes rose above every earlier
+// one, so for a consistent heuristic it traces the search's lower bound.
+public final class SearchMetrics {
+    private final long expansions, generations, duplicates;
+    private final int openPeak;
+    private final long successorNanos, heuristicNanos, elapsedNanos;
+    private final long[] fTimes;
+    private final double[] fValues;
+    
+    // Pre: fTimes and fValues hold at least numF entries
+    // Post: Copies the first numF f-steps
+    SearchMetrics(long expansions, long generations, long duplicates, int openPeak,
+                  long successorNanos, long heuristicNanos, long elapsedNanos,
+                  long[] fTimes, double[] fValues, int numF) {
+        this.expansions = expansions;
+        this.generations = generations;
+        this.duplicates = duplicates;
+        this.openPeak = openPeak;
+        this.successorNanos = successorNanos;
+        this.heuristicNanos = heuristicNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.fTimes = Arrays.copyOf(fTimes, numF);
+        this.fValues = Arrays.copyOf(fValues, numF);
+    }
+    
+    public long getExpansions() {return expansions;}
+    
+    public long getGenerations() {return generations;}
+    
+    public long getDuplicates() {return duplicates;}
+    
+    // Post: Returns the largest number of entries the open list held at
+    //       once, counting entries superseded by cheaper paths
+    public int getOpenPeak() {return openPeak;}
+    
+    // Post: Returns the time spent in getSuccessors(); 0 unless the
+    //       searcher was timed
+    public long getSuccessorNanos() {return successorNanos;}
+    
+    // Post: Returns the time spent in getDistance(); 0 unless the
+    //       searcher was timed
+    public long getHeuristicNanos() {return heuristicNanos;}
+    
+    public long getElapsedNanos() {return elapsedNanos;}
+    
+    public int getNumFSteps() {return fValues.length;}
+    
+    // Pre: 0 <= i < getNumFSteps()
+    // Post: Returns when the ith rise in f happened
+    public long getFStepTime(int i) {return fTimes[i];}
+    
+    // Pre: 0 <= i < getNumFSteps()
+    // Post: Returns the f-value reached by the ith rise
+    public double getFStepValue(int i) {return fValues[i];}
+    
+    // Post: Returns the largest f expanded so far, or NaN if none was
+    public double getF() {
+        return fValues.length == 0 ? Double.NaN : fValues[fValues.length - 1];
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("expanded %d, generated %d, duplicates %d, open peak %d, "
+                + "successors %.1f ms, heuristic %.1f ms, elapsed %.1f ms, f %s",
+                expansions, generations, duplicates, openPeak, successorNanos / 1e6,
+                heuristicNanos / 1e6, elapsedNanos / 1e6, getF());
+    }
+}
@@ -0,0 +1,62 @@
+package search.core;
+
+// A node of a best-first search tree.  The heuristic is evaluated exactly
+// once, when the node is created; g, h and f never change afterwards.
+class SearchNode<T extends BestFirstObject<T>> {
+    private T node;
+    private SearchNode<T> parent;
+    private int depth, h;
+    private double f;
+    private long order;
+    
+    // Link to the next node in the same BucketOpenList bucket
+    SearchNode<T> next;
+    
+    // Set once this node has been expanded
+    boolean closed;
+
+    // Pre: order is unique within one search
+    // Post: depth (g) is one more than parent's, or 0 for the root;
+    //       f = g + h
+    SearchNode(SearchNode<T> parent, T node, int h, long order) {
+        this(parent, node, h, 1.0, order);
+    }
+
+    // Pre: order is unique within one search
+    // Post: As above, but f = g + weight * h
+    SearchNode(SearchNode<T> parent, T node, int h, double weight, long order) {
+        this(parent, node, 1, h, weight, order);
+    }
+
+    // Pre: order is unique within one search; cost >= 0
+    // Post: depth (g) is parent's plus cost, or 0 for the root;
+    //       f = g + weight * h
+    SearchNode(SearchNode<T> parent, T node, int cost, int h, double weight, long order) {
+        this.node = node;
+        this.parent = parent;
+        this.depth = (parent == null) ? 0 : parent.depth + cost;
+        this.h = h;
+        this.f = (double)depth + weight * (double)h;
+        this.order = order;
+    }
+
+    // Post: Returns a copy of this node with f = g + weight * h
+    SearchNode<T> reweighted(double weight, long order) {
+        int cost = (parent == null) ? 0 : depth - parent.depth;
+        return new SearchNode<T>(parent, node, cost, h, weight, order);
+    }
+
+    T getObject() {return node;}
+
+    SearchNode<T> getParent() {return parent;}
+
+    int getDepth() {return depth;}
+
+    int getH() {return h;}
+
+    double getF() {return f;}
+
+    // Post: Returns the position of this node in the sequence of all nodes
+    //       created during its search
+    long getOrder() {return order;}
+}
@@ -0,0 +1,13 @@
+package search.core;
+
+// Why a search stopped.
+public enum SearchStatus {
+    // A solution was found
+    SOLVED,
+    // Every reachable state was examined without finding a solution
+    EXHAUSTED,
+    // A node, time or memory limit was reached first
+    BUDGET_EXCEEDED,
+    // cancel() was called
+    CANCELLED
+}
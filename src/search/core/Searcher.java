@@ -0,0 +1,23 @@
+package search.core;
+
+public interface Searcher<T extends BestFirstObject<T>> {
+    // Pre: None
+    // Post: Searches for a path from start to an object that achieves
+    //       target; success() reports whether one was found
+    public void solve(T start, T target);
+
+    public boolean success();
+
+    // Pre: success()
+    public int numSteps();
+
+    // Pre: 0 <= n < numSteps(); success()
+    // Post: Returns the nth object on the path; get(0) is the start
+    public T get(int n);
+
+    public int getNumNodes();
+
+    public int getMaxDepth();
+
+    public double getBranchingFactor(double maxError);
+}
@@ -0,0 +1,10 @@
+package search.core;
+import java.util.List;
+
+public interface SolutionListener<T extends BestFirstObject<T>> {
+    // Pre: path.get(0) is the start; the last element achieves the target
+    // Post: Called each time an anytime search finds a path shorter than
+    //       every path it reported before; bound is the factor by which
+    //       path may exceed an optimal one, if the heuristic is admissible
+    public void solutionImproved(List<T> path, double bound);
+}
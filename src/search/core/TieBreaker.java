@@ -0,0 +1,42 @@
+package search.core;
+
+// Decides which of two open nodes with equal f is expanded first.
+public enum TieBreaker {
+    LOWEST_H {
+        @Override
+        int compare(SearchNode<?> a, SearchNode<?> b) {
+            return Integer.compare(a.getH(), b.getH());
+        }
+    },
+    HIGHEST_G {
+        @Override
+        int compare(SearchNode<?> a, SearchNode<?> b) {
+            return Integer.compare(b.getDepth(), a.getDepth());
+        }
+    },
+    FIFO {
+        @Override
+        int compare(SearchNode<?> a, SearchNode<?> b) {
+            return Long.compare(a.getOrder(), b.getOrder());
+        }
+    },
+    LIFO {
+        @Override
+        int compare(SearchNode<?> a, SearchNode<?> b) {
+            return Long.compare(b.getOrder(), a.getOrder());
+        }
+    };
+
+    // Post: Returns < 0 if a should be expanded before b, > 0 if after,
+    //       0 if this policy cannot tell them apart
+    abstract int compare(SearchNode<?> a, SearchNode<?> b);
+
+    // Post: Orders by f, then by this policy, then by insertion order, so
+    //       that no two distinct nodes ever compare equal
+    int order(SearchNode<?> a, SearchNode<?> b) {
+        int result = Double.compare(a.getF(), b.getF());
+        if (result == 0) {result = compare(a, b);}
+        if (result == 0) {result = Long.compare(a.getOrder(), b.getOrder());}
+        return result;
+    }
+}